@@ -1,7 +1,9 @@
 package com.skmwizard.user;
 
+import com.skmwizard.user.clouds.CloudUnavailableException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -53,6 +55,12 @@ public class UserExceptionHandler {
         return makeResponse(HttpStatus.CONFLICT, exception.getMessage() + " already exist.");
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ExceptionResponse handleOptimisticLockingFailureException(OptimisticLockingFailureException exception) {
+        return makeResponse(HttpStatus.CONFLICT, exception.getMessage() + " was modified concurrently.");
+    }
+
     @ExceptionHandler(NoSuchObjectException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ExceptionResponse handleBadRequestException(NoSuchObjectException exception) {
@@ -65,6 +73,12 @@ public class UserExceptionHandler {
         return makeResponse(HttpStatus.BAD_REQUEST, exception.getMessage());
     }
 
+    @ExceptionHandler(CloudUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ExceptionResponse handleCloudUnavailableException(CloudUnavailableException exception) {
+        return makeResponse(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+    }
+
     @ExceptionHandler(WebExchangeBindException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ExceptionResponse handleMethodArgumentNotValidException(WebExchangeBindException exception) {
@@ -1,8 +1,5 @@
 package com.skmwizard.user.apis;
 
-import com.google.gson.Gson;
-import com.skmwizard.user.messages.PublishableEvent;
-import com.skmwizard.user.messages.activemq.MqttActiveMqPublisher;
 import com.skmwizard.user.services.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,10 +17,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.rmi.NoSuchObjectException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Tag(name = "계정 관리")
 @RestController
@@ -33,11 +33,8 @@ class AccountController {
     private final AccountService accountService;
     private final UserService userService;
     private final VerificationService verificationService;
-    private final AgreeReceiveService agreeReceiveService;
     private final UserResourceConverter userResourceConverter;
     private final AgreeReceiveResourceConverter agreeReceiveConverter;
-    private final MqttActiveMqPublisher messagePublisher;
-    private final Gson gson = new Gson();
 
     @Operation(summary = "사용자 등록", description = "사용자를 동록한다.")
     @ApiResponses({
@@ -50,15 +47,11 @@ class AccountController {
     public Mono<Void> register(@RequestBody @Valid UserRequest userRequest) {
         return accountService.exists(userRequest.getEmail()) // 사용자 이메일 중복 체크
             .flatMap(exists ->
-                accountService.signUp(userResourceConverter.converts(userRequest)) // 사용자 등록 (Cognito, NoSQL)
-                    .doOnSuccess(user -> {
-                        Flux.fromIterable(userRequest.getAgreeList())
-                            .subscribe(agree -> agreeReceiveService.add(userRequest.getEmail(), agreeReceiveConverter.converts(agree)).subscribe()); // 수신 동의 등록
-                        // 회원 가입 정보 발행
-                        userRequest.setPassword(null); // 보안을 위해 비밀번호는 발행하지 않음
-                        String jsonString = gson.toJson(userRequest);
-                        messagePublisher.publish(PublishableEvent.USER_CREATED, null, jsonString);
-                    })
+                // 사용자 등록 (Cognito, NoSQL, 수신 동의), USER_CREATED 는 UserChangeStreamPublisher 가 발행한다.
+                accountService.signUp(userResourceConverter.converts(userRequest),
+                    Optional.ofNullable(userRequest.getAgreeList()).orElse(Collections.emptySet()).stream()
+                        .map(agreeReceiveConverter::converts)
+                        .collect(Collectors.toList()))
             ).then();
     }
 
@@ -87,7 +80,8 @@ class AccountController {
         @ApiResponse(responseCode = "200", description = "사용자 정보 수정 성공, 사용자 정보가 수정되어 반환한다.",
             content = @Content(schema = @Schema(implementation = UserResponse.class))),
         @ApiResponse(responseCode = "400", description = "사용자 등록 실패, 잘못된 요청입니다."),
-        @ApiResponse(responseCode = "401", description = "인증 실패, Access Token을 확인해주세요.")
+        @ApiResponse(responseCode = "401", description = "인증 실패, Access Token을 확인해주세요."),
+        @ApiResponse(responseCode = "409", description = "사용자 정보 수정 실패, 요청한 버전 이후에 다른 수정이 있었습니다.")
     })
     @PutMapping("/me")
     public Mono<UserResponse> editUserInfo(@AuthenticationPrincipal Jwt jwt, @RequestBody @Valid UserUpdateRequest request) {
@@ -111,9 +105,8 @@ class AccountController {
     public Mono<Void> withdrawal(@AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("email");
         log.info("username: {}", username);
-        return userService.remove(username)
-            .doOnSuccess(aVoid -> messagePublisher.publish(PublishableEvent.USER_DELETED, username, new Gson().toJson(User.builder().email(username).build())))
-            .then();
+        // 삭제가 끝나면 USER_DELETED 가 발행된다.
+        return userService.remove(username);
     }
 
     @Operation(summary = "사진 변경", description = "사진를 변경한다.")
@@ -130,15 +123,13 @@ class AccountController {
         String username = jwt.getClaimAsString("email");
         log.info("[GET] /me/picture request: {}", request);
 
-        return userService.get(username)
-            .doOnNext(user ->
-                accountService.changePicture(username, request.getPicture()).subscribe()
-            ).map(exists -> {
+        return accountService.changePicture(username, request.getPicture())
+            .then(Mono.fromSupplier(() -> {
                 ResponseMessage response = new ResponseMessage();
                 response.setMessage("picture change is complete.");
                 response.setStatusCode(HttpStatus.OK.value());
                 return response;
-            });
+            }));
     }
 
     @Operation(summary = "사용자 비밀번호 재설정", description = "사용자 비밀번호를 재설정한다.")
@@ -190,17 +181,16 @@ class AccountController {
         @RequestParam(name = "code") String code) {
         log.info("[GET] /users/find?username={}&phoneNumber={}&code={}", name, phoneNumber, code);
         Verification verification = Verification.builder().checker(phoneNumber).verificationCode(code).build();
-        return Mono
-            .zip(
-                // 사용자 이메일 찾기
-                accountService.find(name, phoneNumber),
-                // 휴대폰 인증 확인 후, 인증 정보 삭제
-                verificationService.exists(verification)
-                    .doOnSuccess(exists -> verificationService.remove(verification).subscribe())
-            ).flatMap(objects -> {
+        // 사용자 이메일을 찾은 뒤에 휴대폰 인증 확인과 인증 정보 삭제, 없는 사용자면 인증번호를 남긴다.
+        return accountService.find(name, phoneNumber)
+            .flatMap(user -> verificationService.consume(verification)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(() -> new NoSuchObjectException("인증번호를 확인해주세요.")))
+                .thenReturn(user))
+            .map(user -> {
                 UserFindResponse response = new UserFindResponse();
-                response.setEmail(objects.getT1().getEmail());
-                return Mono.just(response);
+                response.setEmail(user.getEmail());
+                return response;
             });
     }
 
@@ -218,18 +208,12 @@ class AccountController {
             .checker(request.getEmail())
             .verificationCode(request.getCode())
             .build();
-        // 이메일 인증 확인
-        return verificationService.exists(verification)
-            .doOnNext(exists ->
-                // 사용자 이메일이 있으면, 해당 비밀번호 재설정
-                userService.get(request.getEmail())
-                    .doOnSuccess(user ->
-                        accountService.resetPassword(request.getEmail(), request.getResetPassword()).subscribe())
-                    .subscribe()
-            )
-            // 이메일 인증 확인 후, 인증 정보 삭제
-            .doOnSuccess(exists ->
-                verificationService.remove(verification).subscribe())
+        // 이메일 인증 확인과 인증 정보 삭제 후, 가입한 사용자이면 비밀번호 재설정
+        return verificationService.consume(verification)
+            .filter(Boolean::booleanValue)
+            .switchIfEmpty(Mono.error(() -> new NoSuchObjectException("인증번호를 확인해주세요.")))
+            .flatMap(consumed -> userService.get(request.getEmail()))
+            .flatMap(user -> accountService.resetPassword(request.getEmail(), request.getResetPassword()).thenReturn(user))
             .map(exists -> {
                 ResponseMessage response = new ResponseMessage();
                 response.setMessage("Password change is complete.");
@@ -2,6 +2,7 @@ package com.skmwizard.user.apis;
 
 import com.skmwizard.user.services.User;
 import com.skmwizard.user.services.AccountService;
+import com.skmwizard.user.tokens.TokenRevocationList;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Parameters;
@@ -27,6 +28,7 @@ import javax.validation.Valid;
 class AuthenticationController {
     private final AccountService accountService;
     private final TokenResourceConverter converter;
+    private final TokenRevocationList tokenRevocationList;
 
     @Operation(summary = "로그인", description = "로그인 한다.")
     @ApiResponses({
@@ -58,7 +60,9 @@ class AuthenticationController {
     public Mono<Void> logout(@AuthenticationPrincipal Jwt jwt) {
         String username = jwt.getClaimAsString("cognito:username");
         log.info("[GET] /logout");
-        return accountService.logout(username);
+        // Cognito 응답과 관계없이 이미 발급된 토큰은 바로 거부한다.
+        return Mono.fromRunnable(() -> tokenRevocationList.revoke(username))
+            .then(accountService.logout(username));
     }
 
     @Operation(summary = "토큰 갱신", description = "토큰을 갱신한다.")
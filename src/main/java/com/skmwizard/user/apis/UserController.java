@@ -1,6 +1,9 @@
 package com.skmwizard.user.apis;
 
 import com.skmwizard.user.services.User;
+import com.skmwizard.user.services.UserCursor;
+import com.skmwizard.user.services.UserImportRow;
+import com.skmwizard.user.services.UserImportService;
 import com.skmwizard.user.services.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,19 +13,27 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import javax.validation.Validator;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * @author ingu_ko
@@ -30,11 +41,25 @@ import javax.validation.constraints.Min;
  */
 @Tag(name = "사용자 관리")
 @RestController
-@RequiredArgsConstructor
 @Slf4j
 public class UserController {
     private final UserService userService;
+    private final UserImportService userImportService;
     private final UserResourceConverter converter;
+    private final Validator validator;
+    private final int streamBatchSize;
+
+    UserController(UserService userService,
+                   UserImportService userImportService,
+                   UserResourceConverter converter,
+                   Validator validator,
+                   @Value("${user.stream.batchSize:500}") int streamBatchSize) {
+        this.userService = userService;
+        this.userImportService = userImportService;
+        this.converter = converter;
+        this.validator = validator;
+        this.streamBatchSize = streamBatchSize;
+    }
 
     @Operation(summary = "사용자 추가", description = "사용자를 추가 한다.")
     @Parameters({
@@ -53,11 +78,66 @@ public class UserController {
             .map(converter::converts);
     }
 
+    @Operation(summary = "사용자 일괄 추가", description = "한 줄에 사용자 하나씩 담긴 NDJSON 을 읽어 사용자를 일괄 추가 한다. 각 행은 사용자 추가와 같은 규칙으로 검증한다. 행 단위 처리 결과를 스트림으로 반환한다.")
+    @Parameters({
+        @Parameter(name = "Authorization", description = "인증 토큰", in = ParameterIn.HEADER, example = "Authorization Bearer INVALID", schema = @Schema(type = "string"), required = true),
+    })
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "일괄 추가 시작. 행 번호, 이메일, 성공 여부, 실패 사유를 처리되는 순서로 반환한다.")
+    })
+    @PostMapping(path = "/users/import", consumes = MediaType.APPLICATION_STREAM_JSON_VALUE, produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<UserImportResponse> addAll(@AuthenticationPrincipal Jwt jwt, @RequestBody Flux<UserRequest> requests) {
+        String username = jwt.getClaimAsString("email");
+        log.info("[POST] /users/import, username: {}", username);
+        return userImportService.addAll(username, requests.map(this::importRow))
+            .map(converter::converts);
+    }
+
+    @Operation(summary = "사용자 일괄 추가 (CSV)", description = "email,name,phoneNumber,password 순서의 CSV 를 읽어 사용자를 일괄 추가 한다. 첫 줄이 헤더이면 건너뛴다. 쉼표나 따옴표가 든 값은 큰따옴표로 감싼다. 각 행은 사용자 추가와 같은 규칙으로 검증한다.")
+    @Parameters({
+        @Parameter(name = "Authorization", description = "인증 토큰", in = ParameterIn.HEADER, example = "Authorization Bearer INVALID", schema = @Schema(type = "string"), required = true),
+    })
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "일괄 추가 시작. 행 번호, 이메일, 성공 여부, 실패 사유를 처리되는 순서로 반환한다.")
+    })
+    @PostMapping(path = "/users/import", consumes = "text/csv", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<UserImportResponse> addAllCsv(@AuthenticationPrincipal Jwt jwt, @RequestBody Flux<String> lines) {
+        String username = jwt.getClaimAsString("email");
+        log.info("[POST] /users/import (csv), username: {}", username);
+        Flux<String> rows = lines
+            .filter(line -> !line.trim().isEmpty())
+            .switchOnFirst((first, flux) -> first.hasValue() && first.get().trim().toLowerCase().startsWith("email")
+                ? flux.skip(1) : flux);
+        return userImportService.addAll(username, rows.map(line -> {
+            try {
+                return importRow(converter.parseCsv(line));
+            } catch (IllegalArgumentException e) {
+                return UserImportRow.builder().rejection(e.getMessage()).build();
+            }
+        }))
+            .map(converter::converts);
+    }
+
+    /**
+     * POST /users 와 같은 제약으로 행 검증, 실패하면 등록하지 않고 행 결과에 사유를 남긴다.
+     */
+    private UserImportRow importRow(UserRequest request) {
+        String rejection = validator.validate(request).stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+        return UserImportRow.builder()
+            .user(converter.converts(request))
+            .rejection(rejection.isEmpty() ? null : rejection)
+            .build();
+    }
+
     @Operation(summary = "사용자 목록 조회", description = "사용자 목록 조회한다.")
     @Parameters({
         @Parameter(name = "Authorization", description = "인증 토큰", in = ParameterIn.HEADER, example = "Authorization Bearer INVALID", schema = @Schema(type = "string"), required = true),
         @Parameter(name = "page", description = "페이지 번호", in = ParameterIn.PATH, example = "0"),
-        @Parameter(name = "sizePerPage", description = "페이지 객체 수", in = ParameterIn.PATH, example = "20")
+        @Parameter(name = "sizePerPage", description = "페이지 객체 수", in = ParameterIn.PATH, example = "20"),
+        @Parameter(name = "total", description = "전체 수 계산 방법, exact: 정확한 수 (짧게 캐시), estimated: 조건이 없으면 컬렉션 메타데이터의 추정치, none: 세지 않음", in = ParameterIn.QUERY, example = "exact")
     })
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "사용 중복 확인 성공, 사용 가능한 아이디입니다."),
@@ -67,21 +147,105 @@ public class UserController {
     public Mono<Page<UserResponse>> get(
         UserRequest request,
         @RequestParam(name = "page", required = false, defaultValue = "0") @Min(0) int page,
-        @RequestParam(name = "sizePerPage", required = false, defaultValue = "20") @Min(1) int sizePerPage) {
-        log.info("[GET] /users?page={}&sizePerPage={}, request: {}", page, sizePerPage, request);
+        @RequestParam(name = "sizePerPage", required = false, defaultValue = "20") @Min(1) int sizePerPage,
+        @RequestParam(name = "total", required = false, defaultValue = "exact") String total) {
+        log.info("[GET] /users?page={}&sizePerPage={}&total={}, request: {}", page, sizePerPage, total, request);
         User parameter = converter.converts(request);
-        return userService.get(parameter)
-            .skip(page * (long) sizePerPage)
-            .take(sizePerPage)
+        long offset = page * (long) sizePerPage;
+        Mono<List<UserResponse>> content = userService.get(parameter, offset, sizePerPage)
             .map(converter::converts)
+            .collectList();
+        Pageable pageable = page < 1 ? Pageable.unpaged() : PageRequest.of(page, sizePerPage);
+        if ("none".equalsIgnoreCase(total)) {
+            // 전체 수를 세지 않고, 페이지가 가득 찼으면 다음 페이지가 있는 것으로 표시한다.
+            return content.map(resourceList -> new PageImpl<>(resourceList, pageable,
+                offset + resourceList.size() + (resourceList.size() == sizePerPage ? 1 : 0)));
+        }
+        Mono<Long> count = "estimated".equalsIgnoreCase(total)
+            ? userService.estimatedCount(parameter)
+            : userService.count(parameter);
+        // 페이지 조회와 전체 수 조회를 동시에 실행한다.
+        return Mono.zip(content, count)
+            .map(tuple -> new PageImpl<>(tuple.getT1(), pageable, tuple.getT2()));
+    }
+
+    @Operation(summary = "사용자 목록 스트림 조회", description = "Accept 가 application/stream+json 또는 text/event-stream 이면 조건에 맞는 사용자 전체를 페이지 없이 가입일 역순으로 바로 전송한다.")
+    @Parameters({
+        @Parameter(name = "Authorization", description = "인증 토큰", in = ParameterIn.HEADER, example = "Authorization Bearer INVALID", schema = @Schema(type = "string"), required = true),
+        @Parameter(name = "batchSize", description = "DB 커서가 한 번에 가져올 사용자 수", in = ParameterIn.QUERY, example = "500")
+    })
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "사용자 목록 전송 시작."),
+        @ApiResponse(responseCode = "400", description = "batchSize 가 1 보다 작습니다.")
+    })
+    @GetMapping(path = "/users", produces = {MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<UserResponse> stream(
+        UserRequest request,
+        @RequestParam(name = "batchSize", required = false) @Min(1) Integer batchSize) {
+        // 컨트롤러에 @Validated 가 없어 @Min 이 적용되지 않는다. 음수는 드라이버가 한 배치만 읽고 커서를 닫으므로 직접 거부한다.
+        if (batchSize != null && batchSize < 1) {
+            return Flux.error(new ServerWebInputException("batchSize must be greater than 0: " + batchSize));
+        }
+        int cursorBatchSize = Optional.ofNullable(batchSize).orElse(streamBatchSize);
+        log.info("[GET] /users (stream) batchSize: {}, request: {}", cursorBatchSize, request);
+        return userService.stream(converter.converts(request), cursorBatchSize)
+            .map(converter::converts);
+    }
+
+    @Operation(summary = "사용자 목록 연속 조회", description = "사용자 목록을 가입일 역순으로 조회한다. 응답의 next 를 cursor 로 전달하면 다음 페이지를 조회한다. 페이지 깊이와 관계없이 응답 시간이 일정하다.")
+    @Parameters({
+        @Parameter(name = "Authorization", description = "인증 토큰", in = ParameterIn.HEADER, example = "Authorization Bearer INVALID", schema = @Schema(type = "string"), required = true),
+        @Parameter(name = "cursor", description = "이전 응답의 next, 없으면 처음부터", in = ParameterIn.QUERY),
+        @Parameter(name = "sizePerPage", description = "페이지 객체 수", in = ParameterIn.QUERY, example = "20")
+    })
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "사용자 목록 조회 성공."),
+        @ApiResponse(responseCode = "400", description = "사용자 목록 조회 실패, 잘못된 cursor 입니다.")
+    })
+    @GetMapping("/users/slice")
+    public Mono<UserSliceResponse> get(
+        UserRequest request,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "sizePerPage", required = false, defaultValue = "20") @Min(1) int sizePerPage) {
+        log.info("[GET] /users/slice?cursor={}&sizePerPage={}, request: {}", cursor, sizePerPage, request);
+        UserCursor after;
+        try {
+            after = cursor == null || cursor.isEmpty() ? null : UserCursor.decode(cursor);
+        } catch (IllegalArgumentException exception) {
+            return Mono.error(new ServerWebInputException(exception.getMessage()));
+        }
+        // 한 건 더 읽어서 다음 페이지가 있는지 판단한다.
+        return userService.get(converter.converts(request), after, sizePerPage + 1)
             .collectList()
-            .flatMap(resourceList -> {
-                Pageable pageable = page < 1 ? Pageable.unpaged() : PageRequest.of(page, sizePerPage);
-                return userService.count(parameter)
-                    .map(count -> new PageImpl<>(resourceList, pageable, count));
+            .map(users -> {
+                UserSliceResponse response = new UserSliceResponse();
+                List<User> content = users.size() > sizePerPage ? users.subList(0, sizePerPage) : users;
+                response.setContent(content.stream().map(converter::converts).collect(Collectors.toList()));
+                if (users.size() > sizePerPage) {
+                    response.setNext(UserCursor.after(content.get(content.size() - 1)).encode());
+                }
+                return response;
             });
     }
 
+    @Operation(summary = "사용자 검색", description = "이메일, 이름, 휴대폰 번호 중 하나에 검색어가 포함된 사용자를 가입일 역순으로 조회한다. 한 글자 검색어는 접두어로 검색한다.")
+    @Parameters({
+        @Parameter(name = "Authorization", description = "인증 토큰", in = ParameterIn.HEADER, example = "Authorization Bearer INVALID", schema = @Schema(type = "string"), required = true),
+        @Parameter(name = "q", description = "검색어", in = ParameterIn.QUERY, example = "길동", required = true),
+        @Parameter(name = "sizePerPage", description = "최대 사용자 수", in = ParameterIn.QUERY, example = "20")
+    })
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "사용자 검색 성공.")
+    })
+    @GetMapping("/users/search")
+    public Flux<UserResponse> search(
+        @RequestParam(name = "q") @NotBlank String query,
+        @RequestParam(name = "sizePerPage", required = false, defaultValue = "20") @Min(1) int sizePerPage) {
+        log.info("[GET] /users/search?q={}&sizePerPage={}", query, sizePerPage);
+        return userService.search(query, sizePerPage)
+            .map(converter::converts);
+    }
+
     @Operation(summary = "특정 사용자 조회", description = "특정 사용자 조회한다.")
     @Parameters({
         @Parameter(name = "Authorization", description = "인증 토큰", in = ParameterIn.HEADER, example = "Authorization Bearer INVALID", schema = @Schema(type = "string"), required = true),
@@ -106,7 +270,7 @@ public class UserController {
     })
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "수정 성공, 작업이 완료된 사용자 정보를 반환한다."),
-        @ApiResponse(responseCode = "409", description = "사용자 중복 확인 실패, 이미 가입된 아이디입니다.")
+        @ApiResponse(responseCode = "409", description = "수정 실패, 요청한 버전 이후에 다른 수정이 있었습니다.")
     })
     @PutMapping("/users/{username}")
     public Mono<UserResponse> edit(@AuthenticationPrincipal Jwt jwt, @PathVariable("username") String id, @RequestBody @Valid UserUpdateRequest request) {
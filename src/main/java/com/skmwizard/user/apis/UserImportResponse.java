@@ -0,0 +1,17 @@
+package com.skmwizard.user.apis;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+class UserImportResponse {
+    private long row;
+    private String email;
+    private boolean succeeded;
+    private String reason;
+}
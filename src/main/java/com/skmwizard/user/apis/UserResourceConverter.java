@@ -1,8 +1,12 @@
 package com.skmwizard.user.apis;
 
 import com.skmwizard.user.services.User;
+import com.skmwizard.user.services.UserImportResult;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 class UserResourceConverter {
     UserResponse converts(User user) {
@@ -11,6 +15,7 @@ class UserResourceConverter {
         resource.setName(user.getName());
         resource.setPicture(user.getPicture());
         resource.setPhoneNumber(user.getPhoneNumber());
+        resource.setVersion(user.getVersion());
         return resource;
     }
 
@@ -27,6 +32,7 @@ class UserResourceConverter {
         return User.builder()
             .name(resource.getName())
             .phoneNumber(resource.getPhoneNumber())
+            .version(resource.getVersion())
             .build();
     }
 
@@ -35,6 +41,86 @@ class UserResourceConverter {
             .email(username)
             .name(resource.getName())
             .phoneNumber(resource.getPhoneNumber())
+            .version(resource.getVersion())
             .build();
     }
+
+    UserImportResponse converts(UserImportResult result) {
+        UserImportResponse resource = new UserImportResponse();
+        resource.setRow(result.getRow());
+        resource.setEmail(result.getEmail());
+        resource.setSucceeded(result.isSucceeded());
+        resource.setReason(result.getReason());
+        return resource;
+    }
+
+    /**
+     * CSV 한 줄(email,name,phoneNumber,password)을 사용자 요청으로 변환
+     * <pre>
+     * RFC 4180 의 따옴표 필드를 지원한다. "a,b" 는 a,b 로, 필드 안의 "" 는 " 로 읽는다.
+     * 요청 본문을 줄 단위로 읽으므로 따옴표 안의 줄바꿈은 지원하지 않는다.
+     * </pre>
+     *
+     * @throws IllegalArgumentException 따옴표가 닫히지 않았거나 따옴표 필드 뒤에 다른 문자가 있는 경우
+     */
+    UserRequest parseCsv(String csvLine) {
+        List<String> columns = csvColumns(csvLine);
+        UserRequest resource = new UserRequest();
+        resource.setEmail(column(columns, 0));
+        resource.setName(column(columns, 1));
+        resource.setPhoneNumber(column(columns, 2));
+        resource.setPassword(column(columns, 3));
+        return resource;
+    }
+
+    private static List<String> csvColumns(String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder column = new StringBuilder();
+        int index = 0;
+        while (true) {
+            column.setLength(0);
+            boolean quoted = false;
+            while (index < line.length() && line.charAt(index) == ' ') {
+                index++;
+            }
+            if (index < line.length() && line.charAt(index) == '"') {
+                quoted = true;
+                index++;
+                while (true) {
+                    if (index >= line.length()) {
+                        throw new IllegalArgumentException("CSV 따옴표가 닫히지 않았습니다.");
+                    }
+                    char character = line.charAt(index++);
+                    if (character != '"') {
+                        column.append(character);
+                    } else if (index < line.length() && line.charAt(index) == '"') {
+                        column.append('"');
+                        index++;
+                    } else {
+                        break;
+                    }
+                }
+                while (index < line.length() && line.charAt(index) == ' ') {
+                    index++;
+                }
+                if (index < line.length() && line.charAt(index) != ',') {
+                    throw new IllegalArgumentException("CSV 따옴표 필드 뒤에 다른 문자가 있습니다.");
+                }
+            } else {
+                while (index < line.length() && line.charAt(index) != ',') {
+                    column.append(line.charAt(index++));
+                }
+            }
+            // 따옴표 필드는 공백까지 그대로, 따옴표 없는 필드는 앞뒤 공백을 지운다.
+            columns.add(quoted ? column.toString() : column.toString().trim());
+            if (index >= line.length()) {
+                return columns;
+            }
+            index++;
+        }
+    }
+
+    private static String column(List<String> columns, int index) {
+        return index < columns.size() ? columns.get(index) : null;
+    }
 }
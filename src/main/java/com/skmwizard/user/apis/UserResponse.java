@@ -12,4 +12,5 @@ class UserResponse {
     private String name;
     private String phoneNumber;
     private String picture;
+    private Long version;
 }
@@ -0,0 +1,20 @@
+package com.skmwizard.user.apis;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+class UserSliceResponse {
+    private List<UserResponse> content;
+
+    @Schema(title = "다음 페이지 위치", description = "다음 페이지 요청의 cursor 로 전달한다. 마지막 페이지이면 없다.")
+    private String next;
+}
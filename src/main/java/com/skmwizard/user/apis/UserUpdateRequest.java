@@ -28,4 +28,7 @@ class UserUpdateRequest {
 
     @Schema(title = "수신 동의", example = "[\"SMS\", \"EMAIL\"]")
     private Set<String> agreeList;
+
+    @Schema(title = "수정할 사용자 정보의 버전, 보내면 그 사이 다른 수정이 있었을 때 409 로 거부한다", example = "3")
+    private Long version;
 }
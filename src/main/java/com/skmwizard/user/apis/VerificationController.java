@@ -17,6 +17,7 @@ import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.rmi.NoSuchObjectException;
 import java.security.SecureRandom;
 
 /**
@@ -99,9 +100,10 @@ class VerificationController {
             .checker(request.getPhoneNumber())
             .verificationCode(request.getVerificationCode())
             .build();
-        return verificationService.exists(verification)
-            .doOnNext(exists -> verificationService.remove(verification).subscribe())
-            .flatMap(exists -> Mono.just(makeResponse()));
+        return verificationService.consume(verification)
+            .filter(Boolean::booleanValue)
+            .switchIfEmpty(Mono.error(() -> new NoSuchObjectException("인증번호를 확인해주세요.")))
+            .map(consumed -> makeResponse());
     }
 
     private ResponseMessage makeResponse() {
@@ -0,0 +1,89 @@
+package com.skmwizard.user.clouds;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 관측한 응답 시간을 기준으로 동시 호출 한도를 조절하는 AIMD 한도 관리자
+ * <pre>
+ * - 한도의 절반 이상을 사용 중이고 응답이 latencyThreshold 이내이면 한도를 1 늘린다.
+ * - 응답이 latencyThreshold 를 넘거나 실패하면 한도에 backoffRatio 를 곱해 줄인다.
+ * - 한도를 넘는 호출은 기다리지 않고 바로 거절한다.
+ * </pre>
+ */
+public class AdaptiveConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private double limit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThresholdNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * 호출 허가 획득
+     *
+     * @return 한도 이내이면 true, 한도를 넘으면 false
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inflight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+        } while (!inflight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * 성공한 호출의 허가 반환
+     *
+     * @param latencyNanos 호출 응답 시간
+     */
+    public void onSuccess(long latencyNanos) {
+        int current = inflight.getAndDecrement();
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (current * 2 >= getLimit()) {
+            increase();
+        }
+    }
+
+    /**
+     * 장애로 판단된 호출의 허가 반환
+     */
+    public void onDropped() {
+        inflight.decrementAndGet();
+        decrease();
+    }
+
+    /**
+     * 한도 조절에 반영하지 않는 호출(취소, 요청 오류)의 허가 반환
+     */
+    public void onIgnored() {
+        inflight.decrementAndGet();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private synchronized void increase() {
+        limit = Math.min(maxLimit, limit + 1);
+    }
+
+    private synchronized void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
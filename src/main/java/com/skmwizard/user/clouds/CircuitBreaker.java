@@ -0,0 +1,87 @@
+package com.skmwizard.user.clouds;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 연속 실패 횟수 기준 Circuit Breaker
+ * <pre>
+ * CLOSED    : 모든 호출을 허용하고, 연속 실패가 failureThreshold 에 도달하면 OPEN 으로 전환한다.
+ * OPEN      : openDuration 동안 모든 호출을 거절한 뒤 HALF_OPEN 으로 전환한다.
+ * HALF_OPEN : 시험 호출 하나만 허용하고, 성공하면 CLOSED, 실패하면 다시 OPEN 으로 전환한다.
+ * </pre>
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private Instant openedAt = Instant.EPOCH;
+    private boolean probing;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * 호출 허용 여부
+     *
+     * @return 허용하면 true
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probing = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        probing = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.instant();
+        }
+    }
+
+    /**
+     * 결과를 판단하지 않은 호출(취소, 요청 오류)의 시험 호출 허가 반환
+     */
+    public synchronized void onIgnored() {
+        probing = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
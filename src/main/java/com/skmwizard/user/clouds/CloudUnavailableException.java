@@ -0,0 +1,12 @@
+package com.skmwizard.user.clouds;
+
+/**
+ * 동시 호출 한도를 넘었거나 Circuit Breaker 가 열려 클라우드 호출을 거절한 경우
+ */
+public class CloudUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public CloudUnavailableException(String operation, String reason) {
+        super(operation + " is temporarily unavailable (" + reason + ")");
+    }
+}
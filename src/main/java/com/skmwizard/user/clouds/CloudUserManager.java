@@ -21,5 +21,11 @@ public interface CloudUserManager {
 
     Mono<Boolean> resetPassword(String username, String resetPassword);
 
+    /**
+     * 사용자 삭제
+     *
+     * @param username 아이디
+     * @return 삭제했으면 true, 이미 없는 사용자이면 false
+     */
     Mono<Boolean> remove(String username);
 }
@@ -0,0 +1,68 @@
+package com.skmwizard.user.clouds;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import software.amazon.awssdk.core.exception.ApiCallAttemptTimeoutException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * CloudUserManager 데코레이터 설정
+ * <pre>
+ * 실제 구현체는 {@code @Qualifier(CloudUserManagerConfiguration.TARGET)} 로 등록하고,
+ * 호출하는 쪽은 지금처럼 CloudUserManager 를 주입받으면 @Primary 인 데코레이터가 주입된다.
+ * </pre>
+ */
+@Configuration
+public class CloudUserManagerConfiguration {
+    public static final String TARGET = "cloudUserManagerTarget";
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "cloud.guard", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CloudUserManager guardedCloudUserManager(
+        @Qualifier(TARGET) CloudUserManager target,
+        MeterRegistry meterRegistry,
+        @Value("${cloud.guard.initialLimit:20}") int initialLimit,
+        @Value("${cloud.guard.minLimit:1}") int minLimit,
+        @Value("${cloud.guard.maxLimit:200}") int maxLimit,
+        @Value("${cloud.guard.backoffRatio:0.9}") double backoffRatio,
+        @Value("${cloud.guard.latencyThreshold:1s}") Duration latencyThreshold,
+        @Value("${cloud.guard.failureThreshold:10}") int failureThreshold,
+        @Value("${cloud.guard.openDuration:10s}") Duration openDuration) {
+        return new GuardedCloudUserManager(
+            target,
+            CloudUserManagerConfiguration::isBackendFailure,
+            operation -> new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, latencyThreshold.toNanos()),
+            operation -> new CircuitBreaker(failureThreshold, openDuration),
+            meterRegistry);
+    }
+
+    /**
+     * 한도 감소와 Circuit Breaker 에 반영할 장애 여부
+     * <pre>타임아웃, 연결 오류, 요청 제한(Throttling), 5xx 응답만 장애로 본다.</pre>
+     */
+    static boolean isBackendFailure(Throwable throwable) {
+        if (throwable instanceof TimeoutException
+            || throwable instanceof ApiCallTimeoutException
+            || throwable instanceof ApiCallAttemptTimeoutException
+            || throwable instanceof SdkClientException) {
+            return true;
+        }
+        if (throwable instanceof SdkServiceException) {
+            SdkServiceException exception = (SdkServiceException) throwable;
+            return exception.isThrottlingException() || exception.statusCode() >= 500;
+        }
+        return throwable.getCause() != null && throwable.getCause() != throwable && isBackendFailure(throwable.getCause());
+    }
+}
@@ -0,0 +1,182 @@
+package com.skmwizard.user.clouds;
+
+import com.skmwizard.user.services.Token;
+import com.skmwizard.user.services.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 오퍼레이션 별 적응형 동시 호출 한도와 Circuit Breaker 를 적용하는 CloudUserManager 데코레이터
+ * <pre>
+ * 한도를 넘거나 Circuit Breaker 가 열려 있으면 대기하지 않고 CloudUnavailableException(503) 으로 실패한다.
+ * 오퍼레이션 별 호출 결과는 cloud.user.manager.calls{operation, outcome} 로 기록한다.
+ * </pre>
+ */
+@Slf4j
+public class GuardedCloudUserManager implements CloudUserManager {
+    private final CloudUserManager delegate;
+    private final Predicate<Throwable> failurePredicate;
+    private final Function<String, AdaptiveConcurrencyLimiter> limiterFactory;
+    private final Function<String, CircuitBreaker> circuitBreakerFactory;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate              실제 CloudUserManager
+     * @param failurePredicate      한도 감소와 Circuit Breaker 에 반영할 장애 여부
+     * @param limiterFactory        오퍼레이션 별 한도 관리자 생성
+     * @param circuitBreakerFactory 오퍼레이션 별 Circuit Breaker 생성
+     * @param meterRegistry         지표 등록
+     */
+    public GuardedCloudUserManager(
+        CloudUserManager delegate,
+        Predicate<Throwable> failurePredicate,
+        Function<String, AdaptiveConcurrencyLimiter> limiterFactory,
+        Function<String, CircuitBreaker> circuitBreakerFactory,
+        MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.failurePredicate = failurePredicate;
+        this.limiterFactory = limiterFactory;
+        this.circuitBreakerFactory = circuitBreakerFactory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Token> login(User user) {
+        return guard("login", () -> delegate.login(user));
+    }
+
+    @Override
+    public Mono<Boolean> logout(String username) {
+        return guard("logout", () -> delegate.logout(username));
+    }
+
+    @Override
+    public Mono<Token> refreshToken(String refreshToken) {
+        return guard("refreshToken", () -> delegate.refreshToken(refreshToken));
+    }
+
+    @Override
+    public Mono<User> register(User user) {
+        return guard("register", () -> delegate.register(user));
+    }
+
+    @Override
+    public Mono<User> edit(User user) {
+        return guard("edit", () -> delegate.edit(user));
+    }
+
+    @Override
+    public Mono<Boolean> resetPassword(String username, String resetPassword) {
+        return guard("resetPassword", () -> delegate.resetPassword(username, resetPassword));
+    }
+
+    @Override
+    public Mono<Boolean> remove(String username) {
+        return guard("remove", () -> delegate.remove(username));
+    }
+
+    /**
+     * 허가를 얻은 경우에만 호출을 시작한다.
+     * <pre>
+     * delegate 는 메소드 호출 시점에 요청을 보내므로 반드시 defer 안에서 호출한다.
+     * 허가를 얻은 뒤 호출이 바로 예외를 던져도 에러 신호로 바꾸어, 허가를 돌려준다.
+     * </pre>
+     */
+    private <T> Mono<T> guard(String operation, Supplier<Mono<T>> call) {
+        Guard guard = guards.computeIfAbsent(operation, this::createGuard);
+        return Mono.defer(() -> {
+            if (!guard.circuitBreaker.tryAcquire()) {
+                guard.rejected.record(0, TimeUnit.NANOSECONDS);
+                return Mono.error(new CloudUnavailableException(operation, "circuit open"));
+            }
+            if (!guard.limiter.tryAcquire()) {
+                guard.circuitBreaker.onIgnored();
+                guard.rejected.record(0, TimeUnit.NANOSECONDS);
+                return Mono.error(new CloudUnavailableException(operation, "concurrency limit " + guard.limiter.getLimit()));
+            }
+            long start = System.nanoTime();
+            AtomicBoolean released = new AtomicBoolean();
+            return Mono.defer(call)
+                .doOnSuccess(result -> {
+                    if (released.compareAndSet(false, true)) {
+                        long latency = System.nanoTime() - start;
+                        guard.limiter.onSuccess(latency);
+                        guard.circuitBreaker.onSuccess();
+                        guard.success.record(latency, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .doOnError(throwable -> {
+                    if (released.compareAndSet(false, true)) {
+                        long latency = System.nanoTime() - start;
+                        if (failurePredicate.test(throwable)) {
+                            guard.limiter.onDropped();
+                            guard.circuitBreaker.onFailure();
+                            guard.failure.record(latency, TimeUnit.NANOSECONDS);
+                        } else {
+                            // 잘못된 비밀번호, 중복 가입 등 요청 오류는 Cognito 가 정상 응답한 것이다.
+                            guard.limiter.onSuccess(latency);
+                            guard.circuitBreaker.onSuccess();
+                            guard.success.record(latency, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (released.compareAndSet(false, true)) {
+                        guard.limiter.onIgnored();
+                        guard.circuitBreaker.onIgnored();
+                    }
+                });
+        });
+    }
+
+    private Guard createGuard(String operation) {
+        Guard guard = new Guard(operation, limiterFactory.apply(operation), circuitBreakerFactory.apply(operation), meterRegistry);
+        log.info("[guard] operation: {}, initial limit: {}", operation, guard.limiter.getLimit());
+        return guard;
+    }
+
+    private static class Guard {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final CircuitBreaker circuitBreaker;
+        private final Timer success;
+        private final Timer failure;
+        private final Timer rejected;
+
+        Guard(String operation, AdaptiveConcurrencyLimiter limiter, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+            this.limiter = limiter;
+            this.circuitBreaker = circuitBreaker;
+            this.success = timer(meterRegistry, operation, "success");
+            this.failure = timer(meterRegistry, operation, "failure");
+            this.rejected = timer(meterRegistry, operation, "rejected");
+            Gauge.builder("cloud.user.manager.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("operation", operation)
+                .register(meterRegistry);
+            Gauge.builder("cloud.user.manager.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight)
+                .tag("operation", operation)
+                .register(meterRegistry);
+            Gauge.builder("cloud.user.manager.circuit", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .tag("operation", operation)
+                .description("0: closed, 1: open, 2: half open")
+                .register(meterRegistry);
+        }
+
+        private static Timer timer(MeterRegistry meterRegistry, String operation, String outcome) {
+            return Timer.builder("cloud.user.manager.calls")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+    }
+}
@@ -1,41 +1,68 @@
 package com.skmwizard.user.clouds.amazon;
 
 import com.skmwizard.user.clouds.CloudUserManager;
+import com.skmwizard.user.clouds.CloudUserManagerConfiguration;
 import com.skmwizard.user.services.Token;
 import com.skmwizard.user.services.User;
+import com.skmwizard.user.support.SingleFlightCache;
+import com.skmwizard.user.support.TokenDigest;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderAsyncClient;
 import software.amazon.awssdk.services.cognitoidentityprovider.model.*;
 
+import java.time.Duration;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * @author ingu_ko
  * @since 2020-10-12
  */
 @Component
-@Primary
+@Profile("!fake")
+@Qualifier(CloudUserManagerConfiguration.TARGET)
 @Slf4j
 public class AmazonUserManager implements CloudUserManager {
     private final CognitoIdentityProviderAsyncClient providerClient;
+    private final CognitoRequestScheduler scheduler;
     private final String clientId;
     private final String userPoolId;
+    /**
+     * 동일한 Refresh Token 에 대한 갱신 요청을 하나의 Cognito 호출로 묶기 위한 캐시
+     * <pre>key : Refresh Token 의 SHA-256 해시, value : 진행 중이거나 방금 완료된 갱신 결과</pre>
+     */
+    private final SingleFlightCache<String, Token> refreshTokenCalls;
+    /**
+     * 오퍼레이션 별 API 호출 타임아웃, 없으면 클라이언트 기본값을 사용한다.
+     */
+    private final Map<String, Duration> apiCallTimeouts;
 
     public AmazonUserManager(
         CognitoIdentityProviderAsyncClient providerClient,
+        CognitoRequestScheduler scheduler,
+        CognitoClientProperties clientProperties,
+        MeterRegistry meterRegistry,
         @Value("${aws.cognito.webclient.clientId}") String clientId,
-        @Value("${aws.cognito.userPoolId}") String userPoolId) {
+        @Value("${aws.cognito.userPoolId}") String userPoolId,
+        @Value("${aws.cognito.refreshToken.retention:3s}") Duration refreshTokenRetention,
+        @Value("${aws.cognito.refreshToken.maximumSize:10000}") long refreshTokenMaximumSize) {
         this.providerClient = providerClient;
+        this.scheduler = scheduler;
         this.clientId = clientId;
         this.userPoolId = userPoolId;
+        this.apiCallTimeouts = clientProperties.getApiCallTimeouts();
+        this.refreshTokenCalls = new SingleFlightCache<>(refreshTokenRetention, refreshTokenMaximumSize, meterRegistry, "cognito.refreshToken");
     }
 
     @Override
@@ -55,18 +82,28 @@ public class AmazonUserManager implements CloudUserManager {
 
     @Override
     public Mono<Boolean> logout(String username) {
-        return Mono.fromFuture(
+        return scheduler.schedule(CognitoQuota.USER_AUTHENTICATION, CognitoRequestPriority.NORMAL, () -> Mono.fromFuture(
             providerClient.adminUserGlobalSignOut(
                 AdminUserGlobalSignOutRequest.builder()
+                    .overrideConfiguration(timeout("adminUserGlobalSignOut"))
                     .username(username)
                     .userPoolId(userPoolId)
                     .build()
             )
-        ).map(response -> Optional.ofNullable(response).isPresent());
+        )).map(response -> Optional.ofNullable(response).isPresent());
     }
 
+    /**
+     * 동시에 들어온 같은 Refresh Token 의 갱신 요청은 하나의 Cognito 호출 결과를 공유한다.
+     * 완료된 결과는 retention 동안 보관하여 늦게 도착한 중복 요청에도 재사용하고, 실패한 결과는 바로 제거한다.
+     */
     @Override
     public Mono<Token> refreshToken(String refreshToken) {
+        String key = TokenDigest.digest(refreshToken);
+        return refreshTokenCalls.get(key, k -> requestRefreshToken(refreshToken));
+    }
+
+    private Mono<Token> requestRefreshToken(String refreshToken) {
         Map<String, String> auth = new ConcurrentHashMap<>();
         auth.put("REFRESH_TOKEN", refreshToken);
 
@@ -90,46 +127,41 @@ public class AmazonUserManager implements CloudUserManager {
             .value(Optional.ofNullable(user.getEmail()).orElse(" "))
             .build());
 
-        return Mono.fromFuture(
-            // AWS 사용자 등록
+        // AWS 사용자 등록
+        return scheduler.schedule(CognitoQuota.USER_CREATION, CognitoRequestPriority.NORMAL, () -> Mono.fromFuture(
             providerClient.signUp(
                 SignUpRequest.builder()
+                    .overrideConfiguration(timeout("signUp"))
                     .clientId(clientId)
                     .username(user.getEmail())
                     .password(user.getPassword())
                     .userAttributes(attributeTypes)
                     .build())
-                .whenComplete((signUpResponse, throwable) -> {
-                    if (signUpResponse != null) {
-                        log.info(signUpResponse.toString());
-                    } else {
-                        Mono.error(throwable).subscribe();
-                    }
-                })
-        ).doOnNext(response -> {
+        )).doOnNext(signUpResponse -> log.info(signUpResponse.toString())
+        ).flatMap(response ->
             // AWS 사용자 가입 승인
-            Mono.fromFuture(
+            scheduler.schedule(CognitoQuota.USER_CREATION, CognitoRequestPriority.NORMAL, () -> Mono.fromFuture(
                 providerClient.adminConfirmSignUp(
                     AdminConfirmSignUpRequest.builder()
+                        .overrideConfiguration(timeout("adminConfirmSignUp"))
                         .username(user.getEmail())
                         .userPoolId(userPoolId)
                         .build())
-                    .whenComplete((adminConfirmSignUpResponse, throwable) -> {
-                        if (adminConfirmSignUpResponse != null) {
-                            log.info(adminConfirmSignUpResponse.toString());
-                        } else {
-                            Mono.error(throwable).subscribe();
-                        }
-                    })
-            );
-        }).map(response -> User.builder().email(user.getEmail()).name(user.getName()).build());
+            )).doOnNext(adminConfirmSignUpResponse -> log.info(adminConfirmSignUpResponse.toString()))
+                // 가입 승인에 실패하면 승인되지 않은 사용자가 남지 않도록 삭제한다.
+                .onErrorResume(throwable -> remove(user.getEmail())
+                    .doOnError(removeError -> log.warn("[register] unconfirmed user: {} remove failed.", user.getEmail(), removeError))
+                    .onErrorResume(removeError -> Mono.empty())
+                    .then(Mono.error(throwable)))
+        ).map(response -> User.builder().email(user.getEmail()).name(user.getName()).build());
     }
 
     @Override
     public Mono<User> edit(User user) {
-        return Mono.fromFuture(
+        return scheduler.schedule(CognitoQuota.USER_UPDATE, CognitoRequestPriority.LOW, () -> Mono.fromFuture(
             providerClient.adminUpdateUserAttributes(
                 AdminUpdateUserAttributesRequest.builder()
+                    .overrideConfiguration(timeout("adminUpdateUserAttributes"))
                     .username(user.getEmail())
                     .userPoolId(userPoolId)
                     .userAttributes(
@@ -137,43 +169,37 @@ public class AmazonUserManager implements CloudUserManager {
                             .name("name").value(Optional.ofNullable(user.getName()).orElse(" "))
                             .build())
                     .build())
-        ).map(response -> User.builder().email(user.getEmail()).name(user.getName()).build());
+        )).map(response -> User.builder().email(user.getEmail()).name(user.getName()).build());
     }
 
     @Override
     public Mono<Boolean> resetPassword(String username, String resetPassword) {
-        Map<String, String> auth = new ConcurrentHashMap<>();
-        auth.put("USERNAME", username);
-        auth.put("NEW_PASSWORD", resetPassword);
-
-        return Mono.fromFuture(
+        // permanent(true) 로 설정하므로 NEW_PASSWORD_REQUIRED 챌린지 응답은 필요하지 않다.
+        return scheduler.schedule(CognitoQuota.USER_UPDATE, CognitoRequestPriority.NORMAL, () -> Mono.fromFuture(
             providerClient.adminSetUserPassword(
                 AdminSetUserPasswordRequest.builder()
+                    .overrideConfiguration(timeout("adminSetUserPassword"))
                     .userPoolId(userPoolId)
                     .username(username)
                     .permanent(true)
                     .password(resetPassword)
                     .build()
             )
-        ).doOnNext(response ->
-            providerClient.respondToAuthChallenge(
-                RespondToAuthChallengeRequest.builder()
-                    .challengeName(ChallengeNameType.NEW_PASSWORD_REQUIRED)
-                    .clientId(clientId)
-                    .challengeResponses(auth)
-                    .build())
-        ).map(response -> Optional.ofNullable(response).isPresent());
+        )).map(response -> Optional.ofNullable(response).isPresent());
     }
 
     @Override
     public Mono<Boolean> remove(String username) {
-        return Mono.fromFuture(
+        return scheduler.schedule(CognitoQuota.USER_UPDATE, CognitoRequestPriority.LOW, () -> Mono.fromFuture(
             providerClient.adminDeleteUser(
                 AdminDeleteUserRequest.builder()
+                    .overrideConfiguration(timeout("adminDeleteUser"))
                     .username(username)
                     .userPoolId(userPoolId)
                     .build())
-        ).map(response -> Optional.ofNullable(response).isPresent());
+        )).map(response -> Optional.ofNullable(response).isPresent())
+            // 이미 삭제된 사용자는 삭제된 것으로 본다. (재시도 시 멱등)
+            .onErrorResume(UserNotFoundException.class, exception -> Mono.just(Boolean.FALSE));
     }
 
     /**
@@ -184,14 +210,25 @@ public class AmazonUserManager implements CloudUserManager {
      * @return 토큰
      */
     private Mono<AuthenticationResultType> initiateAuth(Map<String, String> authParameters, AuthFlowType authFlowType) {
-        return Mono.fromFuture(
+        return scheduler.schedule(CognitoQuota.USER_AUTHENTICATION, CognitoRequestPriority.HIGH, () -> Mono.fromFuture(
             providerClient.initiateAuth(
                 InitiateAuthRequest.builder()
+                    .overrideConfiguration(timeout("initiateAuth"))
                     .clientId(clientId)
                     .authParameters(authParameters)
                     .authFlow(authFlowType)
                     .build()
             )
-        ).map(InitiateAuthResponse::authenticationResult);
+        )).map(InitiateAuthResponse::authenticationResult);
+    }
+
+    /**
+     * 오퍼레이션 별 API 호출 타임아웃 적용
+     *
+     * @param operation Cognito 오퍼레이션 이름
+     * @return 요청 재정의 설정
+     */
+    private Consumer<AwsRequestOverrideConfiguration.Builder> timeout(String operation) {
+        return builder -> builder.apiCallTimeout(apiCallTimeouts.get(operation));
     }
 }
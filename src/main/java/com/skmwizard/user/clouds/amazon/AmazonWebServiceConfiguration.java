@@ -1,11 +1,20 @@
 package com.skmwizard.user.clouds.amazon;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import reactor.netty.http.HttpResources;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderAsyncClient;
 
@@ -16,18 +25,30 @@ import javax.annotation.PreDestroy;
  * @since 2020-10-12
  */
 @Configuration
+@Profile("!fake")
+@EnableConfigurationProperties(CognitoClientProperties.class)
+@Slf4j
 public class AmazonWebServiceConfiguration {
     private final CognitoIdentityProviderAsyncClient providerClient;
 
     public AmazonWebServiceConfiguration(
         @Value("${aws.accessKeyId}") String accessKeyId,
         @Value("${aws.secretAccessKey}") String secretAccessKey,
-        @Value("${aws.region}") String region) {
+        @Value("${aws.region}") String region,
+        CognitoClientProperties properties,
+        MeterRegistry meterRegistry) {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
         AwsCredentialsProvider credentialsProvider = StaticCredentialsProvider.create(credentials);
+        log.info("Cognito client properties: {}", properties);
         this.providerClient = CognitoIdentityProviderAsyncClient.builder()
             .region(Region.of(region))
             .credentialsProvider(credentialsProvider)
+            .httpClientBuilder(httpClientBuilder(properties))
+            .overrideConfiguration(ClientOverrideConfiguration.builder()
+                .apiCallTimeout(properties.getApiCallTimeout())
+                .apiCallAttemptTimeout(properties.getApiCallAttemptTimeout())
+                .addMetricPublisher(new CognitoHttpMetricPublisher(meterRegistry))
+                .build())
             .build();
     }
 
@@ -40,4 +61,24 @@ public class AmazonWebServiceConfiguration {
     public void preDestroy() {
         providerClient.close();
     }
+
+    private static NettyNioAsyncHttpClient.Builder httpClientBuilder(CognitoClientProperties properties) {
+        NettyNioAsyncHttpClient.Builder builder = NettyNioAsyncHttpClient.builder()
+            .maxConcurrency(properties.getMaxConcurrency())
+            .maxPendingConnectionAcquires(properties.getMaxPendingConnectionAcquires())
+            .connectionAcquisitionTimeout(properties.getConnectionAcquisitionTimeout())
+            .connectionTimeout(properties.getConnectionTimeout())
+            .connectionTimeToLive(properties.getConnectionTimeToLive())
+            .connectionMaxIdleTime(properties.getConnectionMaxIdleTime())
+            .useIdleConnectionReaper(properties.isUseIdleConnectionReaper())
+            .putChannelOption(ChannelOption.SO_KEEPALIVE, properties.isTcpKeepAlive());
+
+        if (properties.isSharedEventLoop()) {
+            // WebFlux 의 이벤트 루프를 공유하므로 클라이언트 종료 시 함께 종료되지 않는다.
+            builder.eventLoopGroup(SdkEventLoopGroup.create(HttpResources.get().onClient(true)));
+        } else if (properties.getEventLoopThreads() > 0) {
+            builder.eventLoopGroupBuilder(SdkEventLoopGroup.builder().numberOfThreads(properties.getEventLoopThreads()));
+        }
+        return builder;
+    }
 }
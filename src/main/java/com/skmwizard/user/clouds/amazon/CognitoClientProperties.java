@@ -0,0 +1,87 @@
+package com.skmwizard.user.clouds.amazon;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cognito 비동기 클라이언트의 HTTP 연결 풀, 이벤트 루프, API 호출 타임아웃 설정
+ *
+ * @see software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient.Builder
+ */
+@ConfigurationProperties(prefix = "aws.cognito.client")
+@Setter
+@Getter
+@ToString
+public class CognitoClientProperties {
+    /**
+     * 최대 동시 연결 수
+     */
+    private int maxConcurrency = 100;
+
+    /**
+     * 연결 획득 대기열의 최대 크기
+     */
+    private int maxPendingConnectionAcquires = 10000;
+
+    /**
+     * 연결 획득 대기 시간
+     */
+    private Duration connectionAcquisitionTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 연결 수립 대기 시간
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 연결의 최대 사용 시간, 0 이면 제한 없음
+     */
+    private Duration connectionTimeToLive = Duration.ZERO;
+
+    /**
+     * 유휴 연결의 최대 유지 시간
+     */
+    private Duration connectionMaxIdleTime = Duration.ofSeconds(60);
+
+    /**
+     * 유휴 연결 정리 여부
+     */
+    private boolean useIdleConnectionReaper = true;
+
+    /**
+     * TCP Keep-Alive 사용 여부
+     */
+    private boolean tcpKeepAlive = true;
+
+    /**
+     * true 이면 WebFlux(Reactor Netty) 의 이벤트 루프를 함께 사용하고, false 이면 전용 이벤트 루프를 만든다.
+     */
+    private boolean sharedEventLoop = false;
+
+    /**
+     * 전용 이벤트 루프의 스레드 수, 0 이면 SDK 기본값
+     */
+    private int eventLoopThreads = 0;
+
+    /**
+     * 모든 API 호출의 기본 타임아웃, 재시도 포함
+     */
+    private Duration apiCallTimeout = Duration.ofSeconds(10);
+
+    /**
+     * API 호출 1회 시도의 타임아웃
+     */
+    private Duration apiCallAttemptTimeout = Duration.ofSeconds(3);
+
+    /**
+     * Cognito 오퍼레이션 별 API 호출 타임아웃
+     * <pre>ex) aws.cognito.client.apiCallTimeouts.initiateAuth=3s</pre>
+     */
+    private Map<String, Duration> apiCallTimeouts = new HashMap<>();
+}
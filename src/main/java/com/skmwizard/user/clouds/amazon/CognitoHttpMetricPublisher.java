@@ -0,0 +1,68 @@
+package com.skmwizard.user.clouds.amazon;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SDK 가 API 호출마다 수집하는 HTTP 연결 풀 지표를 Micrometer Gauge 로 노출한다.
+ * <pre>마지막으로 관측된 값을 보관하므로, 호출이 없으면 값이 갱신되지 않는다.</pre>
+ */
+class CognitoHttpMetricPublisher implements MetricPublisher {
+    private final AtomicInteger maxConcurrency = new AtomicInteger();
+    private final AtomicInteger leasedConcurrency = new AtomicInteger();
+    private final AtomicInteger availableConcurrency = new AtomicInteger();
+    private final AtomicInteger pendingConcurrencyAcquires = new AtomicInteger();
+
+    CognitoHttpMetricPublisher(MeterRegistry meterRegistry) {
+        Gauge.builder("cognito.http.pool.max", maxConcurrency, AtomicInteger::get)
+            .description("Maximum number of concurrent connections")
+            .register(meterRegistry);
+        Gauge.builder("cognito.http.pool.leased", leasedConcurrency, AtomicInteger::get)
+            .description("Number of connections in use")
+            .register(meterRegistry);
+        Gauge.builder("cognito.http.pool.available", availableConcurrency, AtomicInteger::get)
+            .description("Number of idle connections")
+            .register(meterRegistry);
+        Gauge.builder("cognito.http.pool.pending", pendingConcurrencyAcquires, AtomicInteger::get)
+            .description("Number of requests waiting for a connection")
+            .register(meterRegistry);
+        Gauge.builder("cognito.http.pool.utilization", this, CognitoHttpMetricPublisher::utilization)
+            .description("Ratio of connections in use to the maximum")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        record(metricCollection, HttpMetric.MAX_CONCURRENCY, maxConcurrency);
+        record(metricCollection, HttpMetric.LEASED_CONCURRENCY, leasedConcurrency);
+        record(metricCollection, HttpMetric.AVAILABLE_CONCURRENCY, availableConcurrency);
+        record(metricCollection, HttpMetric.PENDING_CONCURRENCY_ACQUIRES, pendingConcurrencyAcquires);
+        for (MetricCollection child : metricCollection.children()) {
+            publish(child);
+        }
+    }
+
+    @Override
+    public void close() {
+        // 보관하는 자원 없음
+    }
+
+    private double utilization() {
+        int max = maxConcurrency.get();
+        return max == 0 ? 0 : (double) leasedConcurrency.get() / max;
+    }
+
+    private static void record(MetricCollection metricCollection, SdkMetric<Integer> metric, AtomicInteger gauge) {
+        List<Integer> values = metricCollection.metricValues(metric);
+        if (!values.isEmpty()) {
+            gauge.set(values.get(values.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.skmwizard.user.clouds.amazon;
+
+/**
+ * Cognito 요청 한도(Quota) 분류
+ * <pre>참고 : https://docs.aws.amazon.com/cognito/latest/developerguide/limits.html</pre>
+ */
+enum CognitoQuota {
+    /**
+     * InitiateAuth, AdminUserGlobalSignOut
+     */
+    USER_AUTHENTICATION,
+    /**
+     * SignUp, AdminConfirmSignUp
+     */
+    USER_CREATION,
+    /**
+     * AdminUpdateUserAttributes, AdminSetUserPassword, AdminDeleteUser
+     */
+    USER_UPDATE
+}
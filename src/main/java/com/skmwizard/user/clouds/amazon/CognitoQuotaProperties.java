@@ -0,0 +1,69 @@
+package com.skmwizard.user.clouds.amazon;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Cognito 요청 한도(Quota) 분류 별 토큰 버킷과 대기열 설정
+ * <pre>기본값은 Cognito 기본 한도(UserAuthentication 120, UserCreation 50, UserUpdate 25 RPS)</pre>
+ */
+@ConfigurationProperties(prefix = "aws.cognito.quota")
+@Setter
+@Getter
+@ToString
+public class CognitoQuotaProperties {
+    /**
+     * 한도 적용 여부
+     */
+    private boolean enabled = true;
+
+    private Bucket userAuthentication = new Bucket(120, 120);
+
+    private Bucket userCreation = new Bucket(50, 50);
+
+    private Bucket userUpdate = new Bucket(25, 25);
+
+    /**
+     * 분류 별 대기열의 최대 크기
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * 대기열에서 기다리는 최대 시간, 넘으면 요청을 거절한다.
+     */
+    private Duration queueTimeout = Duration.ofSeconds(2);
+
+    Bucket bucket(CognitoQuota quota) {
+        switch (quota) {
+            case USER_AUTHENTICATION:
+                return userAuthentication;
+            case USER_CREATION:
+                return userCreation;
+            default:
+                return userUpdate;
+        }
+    }
+
+    @Setter
+    @Getter
+    @ToString
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        /**
+         * 초당 허용 요청 수
+         */
+        private double rate;
+
+        /**
+         * 순간적으로 허용하는 최대 요청 수
+         */
+        private int burst;
+    }
+}
@@ -0,0 +1,20 @@
+package com.skmwizard.user.clouds.amazon;
+
+/**
+ * 한도 대기열의 우선 순위, 선언 순서가 빠를수록 먼저 처리한다.
+ * <pre>대기열은 CognitoQuota 분류마다 따로 있으므로, 같은 분류의 요청끼리만 순서를 비교한다.</pre>
+ */
+enum CognitoRequestPriority {
+    /**
+     * 로그인, 토큰 갱신
+     */
+    HIGH,
+    /**
+     * 회원 가입, 로그아웃, 비밀번호 재설정
+     */
+    NORMAL,
+    /**
+     * 관리자 수정, 삭제
+     */
+    LOW
+}
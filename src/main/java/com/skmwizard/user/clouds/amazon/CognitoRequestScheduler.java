@@ -0,0 +1,168 @@
+package com.skmwizard.user.clouds.amazon;
+
+import com.skmwizard.user.clouds.CloudUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cognito 요청 한도(Quota) 분류 별 토큰 버킷 스케줄러
+ * <pre>
+ * - 토큰이 있고 대기 중인 요청이 없으면 바로 실행한다.
+ * - 토큰이 없으면 우선 순위 대기열에 넣고, 토큰이 채워지는 시점에 우선 순위 순서로 실행한다.
+ *   대기열과 토큰은 분류마다 따로 있으므로 우선 순위는 같은 분류 안에서만 적용된다.
+ *   (USER_AUTHENTICATION: 로그인, 토큰 갱신 > 로그아웃, USER_UPDATE: 비밀번호 재설정 > 관리자 수정, 삭제)
+ * - 대기열이 가득 찼거나 queueTimeout 동안 실행되지 못하면 CloudUnavailableException(503) 으로 거절한다.
+ * - 대기는 스레드를 막지 않는다.
+ * </pre>
+ */
+@Component
+@Profile("!fake")
+@EnableConfigurationProperties(CognitoQuotaProperties.class)
+@Slf4j
+class CognitoRequestScheduler {
+    private final CognitoQuotaProperties properties;
+    private final Map<CognitoQuota, Lane> lanes = new EnumMap<>(CognitoQuota.class);
+    private final Scheduler scheduler = Schedulers.parallel();
+    private final AtomicLong sequence = new AtomicLong();
+
+    CognitoRequestScheduler(CognitoQuotaProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        log.info("Cognito quota properties: {}", properties);
+        for (CognitoQuota quota : CognitoQuota.values()) {
+            CognitoQuotaProperties.Bucket bucket = properties.bucket(quota);
+            if (bucket.getRate() <= 0) {
+                throw new IllegalArgumentException("Cognito quota " + quota + " rate must be positive: " + bucket.getRate());
+            }
+            lanes.put(quota, new Lane(quota, new TokenBucket(bucket.getRate(), bucket.getBurst()), meterRegistry));
+        }
+    }
+
+    /**
+     * 한도 안에서 요청 실행
+     *
+     * @param quota    요청 한도 분류
+     * @param priority 대기열 우선 순위
+     * @param call     실행할 요청, 허가를 얻은 뒤에 호출된다.
+     * @return 요청 결과
+     */
+    <T> Mono<T> schedule(CognitoQuota quota, CognitoRequestPriority priority, Supplier<Mono<T>> call) {
+        if (!properties.isEnabled()) {
+            return Mono.defer(call);
+        }
+        Lane lane = lanes.get(quota);
+        return Mono.<Boolean>create(sink -> lane.acquire(new Pending(priority, sequence.incrementAndGet(), sink)))
+            .timeout(properties.getQueueTimeout(), Mono.defer(() -> {
+                lane.shed.increment();
+                return Mono.error(new CloudUnavailableException(quota.name(), "queue timeout"));
+            }))
+            .flatMap(granted -> Mono.defer(call));
+    }
+
+    private static class Pending {
+        private final CognitoRequestPriority priority;
+        private final long sequence;
+        private final MonoSink<Boolean> sink;
+        private volatile boolean cancelled;
+
+        Pending(CognitoRequestPriority priority, long sequence, MonoSink<Boolean> sink) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.sink = sink;
+            sink.onCancel(() -> this.cancelled = true);
+        }
+    }
+
+    private class Lane {
+        private final CognitoQuota quota;
+        private final TokenBucket bucket;
+        private final PriorityQueue<Pending> queue = new PriorityQueue<>(
+            Comparator.<Pending, CognitoRequestPriority>comparing(pending -> pending.priority)
+                .thenComparingLong(pending -> pending.sequence));
+        private final Counter granted;
+        private final Counter shed;
+        private boolean draining;
+
+        Lane(CognitoQuota quota, TokenBucket bucket, MeterRegistry meterRegistry) {
+            this.quota = quota;
+            this.bucket = bucket;
+            this.granted = Counter.builder("cognito.quota.requests").tag("quota", quota.name()).tag("outcome", "granted").register(meterRegistry);
+            this.shed = Counter.builder("cognito.quota.requests").tag("quota", quota.name()).tag("outcome", "shed").register(meterRegistry);
+            Gauge.builder("cognito.quota.queue", this, Lane::size).tag("quota", quota.name()).register(meterRegistry);
+        }
+
+        void acquire(Pending pending) {
+            boolean grant;
+            synchronized (this) {
+                if (queue.isEmpty() && bucket.tryConsume()) {
+                    grant = true;
+                } else if (queue.size() >= properties.getQueueCapacity()) {
+                    grant = false;
+                } else {
+                    queue.add(pending);
+                    scheduleDrain();
+                    return;
+                }
+            }
+            if (grant) {
+                granted.increment();
+                pending.sink.success(Boolean.TRUE);
+            } else {
+                shed.increment();
+                pending.sink.error(new CloudUnavailableException(quota.name(), "queue full"));
+            }
+        }
+
+        private void scheduleDrain() {
+            if (!draining) {
+                draining = true;
+                scheduler.schedule(this::drain, bucket.nanosUntilAvailable(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Pending next;
+                synchronized (this) {
+                    next = queue.peek();
+                    while (next != null && next.cancelled) {
+                        queue.poll();
+                        next = queue.peek();
+                    }
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                    if (!bucket.tryConsume()) {
+                        draining = false;
+                        scheduleDrain();
+                        return;
+                    }
+                    queue.poll();
+                }
+                granted.increment();
+                next.sink.success(Boolean.TRUE);
+            }
+        }
+
+        private synchronized int size() {
+            return queue.size();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.skmwizard.user.clouds.amazon;
+
+/**
+ * 초당 rate 개씩 채워지고 최대 burst 개까지 쌓이는 토큰 버킷
+ */
+class TokenBucket {
+    private final double ratePerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive: " + ratePerSecond);
+        }
+        this.ratePerNano = ratePerSecond / 1_000_000_000d;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * 토큰 1개 사용
+     *
+     * @return 토큰이 있으면 true
+     */
+    synchronized boolean tryConsume() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 다음 토큰이 채워질 때까지 남은 시간(ns)
+     */
+    synchronized long nanosUntilAvailable() {
+        refill();
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / ratePerNano);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,193 @@
+package com.skmwizard.user.clouds.fake;
+
+import com.skmwizard.user.clouds.CloudUserManager;
+import com.skmwizard.user.clouds.CloudUserManagerConfiguration;
+import com.skmwizard.user.services.Token;
+import com.skmwizard.user.services.User;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.InternalErrorException;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.NotAuthorizedException;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.TooManyRequestsException;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.UserNotFoundException;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.UsernameExistsException;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 부하/통합 테스트용 In-Memory CloudUserManager (fake 프로파일)
+ * <pre>
+ * - 사용자는 ConcurrentHashMap 에 보관하고, 토큰은 로컬 RSA 키로 서명한다.
+ * - 중복 가입, 없는 사용자, 잘못된 비밀번호는 Cognito 와 같은 예외로 응답하므로 UserExceptionHandler 가 그대로 매핑한다.
+ * - 응답 지연 분포, 오류 비율, 초당 요청 제한은 fake.cognito.* 로 설정한다.
+ * </pre>
+ */
+@Component
+@Profile("fake")
+@Qualifier(CloudUserManagerConfiguration.TARGET)
+@EnableConfigurationProperties(FakeCognitoProperties.class)
+@Slf4j
+public class FakeCloudUserManager implements CloudUserManager {
+    private final FakeCognitoProperties properties;
+    private final FakeTokenIssuer tokenIssuer;
+    private final Map<String, FakeUser> users = new ConcurrentHashMap<>();
+    /**
+     * key : Refresh Token, value : 사용자 이메일
+     */
+    private final Map<String, String> refreshTokens = new ConcurrentHashMap<>();
+    private final AtomicLong throttleWindow = new AtomicLong();
+    private final AtomicLong throttleCount = new AtomicLong();
+
+    public FakeCloudUserManager(FakeCognitoProperties properties) {
+        this.properties = properties;
+        this.tokenIssuer = new FakeTokenIssuer(properties.getJwkSetFile(), properties.getTokenTimeToLive());
+        log.info("Fake Cognito properties: {}", properties);
+    }
+
+    @Override
+    public Mono<Token> login(User user) {
+        return simulate(() -> {
+            FakeUser found = find(user.getEmail());
+            if (!found.password.equals(user.getPassword())) {
+                throw NotAuthorizedException.builder().message("Incorrect username or password.").build();
+            }
+            String refreshToken = UUID.randomUUID().toString();
+            refreshTokens.put(refreshToken, found.email);
+            return token(found, refreshToken);
+        });
+    }
+
+    @Override
+    public Mono<Boolean> logout(String username) {
+        return simulate(() -> {
+            find(username);
+            refreshTokens.values().removeIf(username::equals);
+            return Boolean.TRUE;
+        });
+    }
+
+    @Override
+    public Mono<Token> refreshToken(String refreshToken) {
+        return simulate(() -> {
+            String email = refreshTokens.get(refreshToken);
+            if (email == null) {
+                throw NotAuthorizedException.builder().message("Invalid Refresh Token").build();
+            }
+            // Cognito 는 REFRESH_TOKEN_AUTH 응답에 새 Refresh Token 을 주지 않는다.
+            return token(find(email), null);
+        });
+    }
+
+    @Override
+    public Mono<User> register(User user) {
+        return simulate(() -> {
+            FakeUser created = new FakeUser(user.getEmail(), user.getName(), user.getPassword());
+            if (users.putIfAbsent(user.getEmail(), created) != null) {
+                throw UsernameExistsException.builder().message("An account with the given email already exists.").build();
+            }
+            return User.builder().email(user.getEmail()).name(user.getName()).build();
+        });
+    }
+
+    @Override
+    public Mono<User> edit(User user) {
+        return simulate(() -> {
+            FakeUser edited = users.computeIfPresent(user.getEmail(),
+                (email, found) -> new FakeUser(email, user.getName(), found.password));
+            if (edited == null) {
+                throw userNotFound();
+            }
+            return User.builder().email(user.getEmail()).name(user.getName()).build();
+        });
+    }
+
+    @Override
+    public Mono<Boolean> resetPassword(String username, String resetPassword) {
+        return simulate(() -> {
+            FakeUser reset = users.computeIfPresent(username,
+                (email, found) -> new FakeUser(email, found.name, resetPassword));
+            if (reset == null) {
+                throw userNotFound();
+            }
+            return Boolean.TRUE;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> remove(String username) {
+        return simulate(() -> {
+            if (users.remove(username) == null) {
+                return Boolean.FALSE;
+            }
+            refreshTokens.values().removeIf(username::equals);
+            return Boolean.TRUE;
+        });
+    }
+
+    /**
+     * 초당 요청 제한과 오류 비율을 먼저 판단하고, 지연 시간이 지난 뒤 처리한다.
+     */
+    private <T> Mono<T> simulate(Supplier<T> operation) {
+        return Mono.defer(() -> {
+            if (throttled()) {
+                return Mono.error(TooManyRequestsException.builder().message("Too many requests").statusCode(429).build());
+            }
+            if (properties.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < properties.getErrorRate()) {
+                return Mono.error(InternalErrorException.builder().message("Internal error").statusCode(500).build());
+            }
+            return Mono.delay(properties.getLatency().sample())
+                .map(tick -> operation.get());
+        });
+    }
+
+    private boolean throttled() {
+        int throttleRate = properties.getThrottleRate();
+        if (throttleRate <= 0) {
+            return false;
+        }
+        long window = System.currentTimeMillis() / 1000;
+        long current = throttleWindow.get();
+        if (current != window && throttleWindow.compareAndSet(current, window)) {
+            throttleCount.set(0);
+        }
+        return throttleCount.incrementAndGet() > throttleRate;
+    }
+
+    private FakeUser find(String email) {
+        FakeUser found = users.get(email);
+        if (found == null) {
+            throw userNotFound();
+        }
+        return found;
+    }
+
+    private Token token(FakeUser user, String refreshToken) {
+        return Token.builder()
+            .accessToken(tokenIssuer.issue(user.email, user.name))
+            .refreshToken(refreshToken)
+            .tokenType("Bearer")
+            .expiresIn(tokenIssuer.expiresIn())
+            .build();
+    }
+
+    private static UserNotFoundException userNotFound() {
+        return UserNotFoundException.builder().message("User does not exist.").build();
+    }
+
+    @AllArgsConstructor
+    private static class FakeUser {
+        private final String email;
+        private final String name;
+        private final String password;
+    }
+}
@@ -0,0 +1,98 @@
+package com.skmwizard.user.clouds.fake;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * fake 프로파일의 In-Memory Cognito 동작 설정
+ */
+@ConfigurationProperties(prefix = "fake.cognito")
+@Setter
+@Getter
+@ToString
+public class FakeCognitoProperties {
+    /**
+     * 응답 지연 분포
+     */
+    private Latency latency = new Latency();
+
+    /**
+     * InternalErrorException(500) 을 발생시키는 비율 (0 ~ 1)
+     */
+    private double errorRate = 0;
+
+    /**
+     * 초당 허용 요청 수, 넘으면 TooManyRequestsException 을 발생시킨다. 0 이면 제한 없음
+     */
+    private int throttleRate = 0;
+
+    /**
+     * 발급하는 ID Token 의 유효 시간
+     */
+    private Duration tokenTimeToLive = Duration.ofHours(1);
+
+    /**
+     * 발급한 토큰의 공개키(JWK Set)를 기록할 파일
+     * <pre>spring.security.oauth2.resourceserver.jwt.jwk-set-uri 를 file:{jwkSetFile} 로 설정한다.</pre>
+     */
+    private String jwkSetFile = System.getProperty("java.io.tmpdir") + "/user-management-fake-jwks.json";
+
+    public enum Distribution {
+        /**
+         * 항상 mean
+         */
+        FIXED,
+        /**
+         * min ~ max 균등 분포
+         */
+        UNIFORM,
+        /**
+         * 평균 mean 인 지수 분포, max 로 제한
+         */
+        EXPONENTIAL,
+        /**
+         * 중앙값 mean, 표준편차 sigma 인 로그 정규 분포, max 로 제한
+         */
+        LOG_NORMAL
+    }
+
+    @Setter
+    @Getter
+    @ToString
+    public static class Latency {
+        private Distribution distribution = Distribution.FIXED;
+        private Duration mean = Duration.ofMillis(50);
+        private Duration min = Duration.ZERO;
+        private Duration max = Duration.ofSeconds(1);
+        private double sigma = 0.5;
+
+        /**
+         * 분포에 따른 지연 시간 추출
+         */
+        Duration sample() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long meanNanos = mean.toNanos();
+            long maxNanos = max.toNanos();
+            long nanos;
+            switch (distribution) {
+                case UNIFORM:
+                    nanos = min.toNanos() + (long) (random.nextDouble() * Math.max(0, maxNanos - min.toNanos()));
+                    break;
+                case EXPONENTIAL:
+                    nanos = (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+                    break;
+                case LOG_NORMAL:
+                    nanos = (long) (meanNanos * Math.exp(sigma * random.nextGaussian()));
+                    break;
+                default:
+                    nanos = meanNanos;
+            }
+            return Duration.ofNanos(Math.max(min.toNanos(), Math.min(maxNanos, nanos)));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.skmwizard.user.clouds.fake;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Cognito ID Token 과 같은 형태의 토큰을 로컬 RSA 키로 서명하여 발급한다.
+ */
+@Slf4j
+class FakeTokenIssuer {
+    private static final String ISSUER = "https://cognito-idp.local/fake";
+
+    private final RSAKey key;
+    private final RSASSASigner signer;
+    private final Duration timeToLive;
+
+    FakeTokenIssuer(String jwkSetFile, Duration timeToLive) {
+        try {
+            this.key = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+            this.signer = new RSASSASigner(key);
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        this.timeToLive = timeToLive;
+        write(Paths.get(jwkSetFile));
+    }
+
+    /**
+     * ID Token 발급
+     *
+     * @param email 사용자 이메일
+     * @param name  사용자 이름
+     * @return 서명된 ID Token
+     */
+    String issue(String email, String name) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+            .issuer(ISSUER)
+            .subject(UUID.nameUUIDFromBytes(email.getBytes(StandardCharsets.UTF_8)).toString())
+            .claim("email", email)
+            .claim("name", name)
+            .claim("cognito:username", email)
+            .claim("token_use", "id")
+            .claim("auth_time", now.getEpochSecond())
+            .issueTime(Date.from(now))
+            .expirationTime(Date.from(now.plus(timeToLive)))
+            .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        try {
+            jwt.sign(signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwt.serialize();
+    }
+
+    int expiresIn() {
+        return (int) timeToLive.getSeconds();
+    }
+
+    private void write(Path path) {
+        try {
+            Files.write(path, new JWKSet(key.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8));
+            log.info("[write] fake JWK Set written: {}", path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
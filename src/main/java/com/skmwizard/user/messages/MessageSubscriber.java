@@ -0,0 +1,14 @@
+package com.skmwizard.user.messages;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 다른 인스턴스가 발행한 이벤트 수신
+ */
+public interface MessageSubscriber {
+    /**
+     * event 토픽 구독, 토픽의 {id} 는 모든 아이디와 일치한다.
+     * <pre>구독을 취소하면 브로커 구독도 해제한다.</pre>
+     */
+    Flux<ReceivedMessage> subscribe(PublishableEvent event);
+}
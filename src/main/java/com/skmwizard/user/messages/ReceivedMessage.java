@@ -0,0 +1,20 @@
+package com.skmwizard.user.messages;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 수신한 이벤트
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ReceivedMessage {
+    private final PublishableEvent event;
+    /**
+     * 토픽의 {id} 자리 값, 토픽에 {id} 가 없으면 null
+     */
+    private final String messageId;
+    private final byte[] payload;
+}
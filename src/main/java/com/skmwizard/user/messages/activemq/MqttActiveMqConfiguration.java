@@ -18,6 +18,8 @@ class MqttActiveMqConfiguration {
         MqttConnectOptions options = new MqttConnectOptions();
         options.setUserName(username);
         options.setPassword(password.toCharArray());
+        // 연결이 끊기면 다시 연결한다. 끊긴 동안의 발행은 에러로 끝나므로 발행하는 쪽이 다시 시도한다.
+        options.setAutomaticReconnect(true);
 
         return options;
     }
@@ -4,6 +4,8 @@ import com.skmwizard.user.messages.MessagePublisher;
 import com.skmwizard.user.messages.Publishable;
 import com.skmwizard.user.messages.PublishableEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
 import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
@@ -41,23 +43,35 @@ public class MqttActiveMqPublisher implements MessagePublisher {
         mqttClient.connect(this.mqttConnectOptions).waitForCompletion();
     }
 
+    /**
+     * 브로커가 메시지를 받았다고 확인(QoS 1 PUBACK)하면 완료하고, 발행하지 못하면 에러로 끝난다.
+     */
     @Override
     public Mono<Void> publish(PublishableEvent event, String messageId, byte[] message) {
-        return Mono.just(new MqttMessage(message))
-            .map(payload -> {
-                String topic = Optional.ofNullable(messageId)
-                    .map(id -> event.getTopic().replace("{id}", id))
-                    .orElse(event.getTopic());
+        String topic = Optional.ofNullable(messageId)
+            .map(id -> event.getTopic().replace("{id}", id))
+            .orElse(event.getTopic());
+        return Mono.create(sink -> {
+            MqttMessage payload = new MqttMessage(message);
+            try {
+                mqttClient.publish(topic, payload, null, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken asyncActionToken) {
+                        log.info("[publish] topic: {}, payload: {}", topic, new String(payload.getPayload()));
+                        sink.success();
+                    }
 
-                try {
-                    mqttClient.publish(topic, payload);
-                    log.info("[publish] topic: {}, payload: {}", topic, new String(payload.getPayload()));
-                    return Mono.empty();
-                } catch (MqttException e) {
-                    log.error("[publish] Exception: {}", e.getMessage());
-                    return Mono.error(e);
-                }
-            }).then();
+                    @Override
+                    public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                        log.error("[publish] topic: {} Exception: {}", topic, exception.getMessage());
+                        sink.error(exception);
+                    }
+                });
+            } catch (MqttException e) {
+                log.error("[publish] Exception: {}", e.getMessage());
+                sink.error(e);
+            }
+        });
     }
 
     @Override
@@ -0,0 +1,165 @@
+package com.skmwizard.user.messages.activemq;
+
+import com.skmwizard.user.messages.MessageSubscriber;
+import com.skmwizard.user.messages.PublishableEvent;
+import com.skmwizard.user.messages.ReceivedMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 이벤트 구독용 MQTT 연결
+ * <pre>
+ * - 발행 연결과 따로 두어, 수신 처리가 발행을 막지 않도록 한다.
+ * - 연결이 끊기면 자동으로 다시 연결하고, 구독 중인 토픽을 다시 구독한다. (clean session 이면 브로커가 구독을 잊는다)
+ *   끊긴 동안 발행된 메시지는 받지 못한다. 다시 구독하지 못하면 해당 Flux 를 에러로 끝내, 구독하는 쪽이 다시 구독하게 한다.
+ * </pre>
+ */
+@Component
+@Slf4j
+public class MqttActiveMqSubscriber implements MessageSubscriber {
+    private static final String ID = "{id}";
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+
+    private final MqttAsyncClient mqttClient;
+    private final MqttConnectOptions mqttConnectOptions;
+    /**
+     * 구독 중인 topic filter 별 구독, 다시 연결되면 다시 구독한다.
+     */
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    MqttActiveMqSubscriber(
+        @Value("${activemq.endpoint}") String endpoint,
+        @Value("${activemq.client.id}") String baseClientId,
+        MqttConnectOptions mqttConnectOptions) throws MqttException {
+        final String clientId = baseClientId + "-subscriber" + this.hashCode();
+        this.mqttClient = new MqttAsyncClient(endpoint, clientId, new MemoryPersistence());
+        this.mqttConnectOptions = reconnecting(mqttConnectOptions);
+        this.mqttClient.setCallback(new MqttCallbackExtended() {
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                if (reconnect) {
+                    log.info("[connectComplete] reconnected to {}, resubscribing {} topics.", serverURI, subscriptions.size());
+                    subscriptions.forEach((topicFilter, subscription) -> subscribe(topicFilter, subscription));
+                }
+            }
+
+            @Override
+            public void connectionLost(Throwable cause) {
+                log.warn("[connectionLost] subscriber connection lost, reconnecting: {}", cause.getMessage());
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                // 토픽별 IMqttMessageListener 가 처리한다.
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+                // 구독 연결은 발행하지 않는다.
+            }
+        });
+    }
+
+    @PostConstruct
+    public void connect() throws MqttException {
+        mqttClient.connect(this.mqttConnectOptions).waitForCompletion();
+    }
+
+    @Override
+    public Flux<ReceivedMessage> subscribe(PublishableEvent event) {
+        String topicFilter = event.getTopic().replace(ID, SINGLE_LEVEL_WILDCARD);
+        int idLevel = Arrays.asList(event.getTopic().split("/")).indexOf(ID);
+        return Flux.create(sink -> {
+            Subscription subscription = new Subscription(sink, (topic, message) -> {
+                String messageId = idLevel < 0 ? null : topic.split("/")[idLevel];
+                sink.next(new ReceivedMessage(event, messageId, message.getPayload()));
+            });
+            subscriptions.put(topicFilter, subscription);
+            sink.onDispose(() -> {
+                subscriptions.remove(topicFilter, subscription);
+                try {
+                    if (mqttClient.isConnected()) {
+                        mqttClient.unsubscribe(topicFilter);
+                    }
+                } catch (MqttException e) {
+                    log.warn("[subscribe] unsubscribe {} failed: {}", topicFilter, e.getMessage());
+                }
+            });
+            subscribe(topicFilter, subscription);
+        });
+    }
+
+    @PreDestroy
+    public void disconnect() throws MqttException {
+        mqttClient.disconnect();
+        mqttClient.close();
+    }
+
+    private void subscribe(String topicFilter, Subscription subscription) {
+        try {
+            mqttClient.subscribe(topicFilter, MqttQoS.AT_LEAST_ONCE.getValue(), null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    log.info("[subscribe] topic: {}", topicFilter);
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    log.error("[subscribe] topic: {} Exception: {}", topicFilter, exception.getMessage());
+                    subscription.sink.error(exception);
+                }
+            }, subscription.listener);
+        } catch (MqttException e) {
+            log.error("[subscribe] Exception: {}", e.getMessage());
+            subscription.sink.error(e);
+        }
+    }
+
+    /**
+     * 발행 연결과 같은 설정에 자동 재연결을 켠 사본
+     */
+    private static MqttConnectOptions reconnecting(MqttConnectOptions source) {
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setUserName(source.getUserName());
+        Optional.ofNullable(source.getPassword()).ifPresent(options::setPassword);
+        options.setCleanSession(source.isCleanSession());
+        options.setKeepAliveInterval(source.getKeepAliveInterval());
+        options.setConnectionTimeout(source.getConnectionTimeout());
+        options.setMaxInflight(source.getMaxInflight());
+        Optional.ofNullable(source.getServerURIs()).ifPresent(options::setServerURIs);
+        Optional.ofNullable(source.getSSLProperties()).ifPresent(options::setSSLProperties);
+        Optional.ofNullable(source.getSocketFactory()).ifPresent(options::setSocketFactory);
+        options.setAutomaticReconnect(true);
+        return options;
+    }
+
+    private static final class Subscription {
+        private final FluxSink<ReceivedMessage> sink;
+        private final IMqttMessageListener listener;
+
+        private Subscription(FluxSink<ReceivedMessage> sink, IMqttMessageListener listener) {
+            this.sink = sink;
+            this.listener = listener;
+        }
+    }
+}
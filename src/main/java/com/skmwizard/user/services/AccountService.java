@@ -2,6 +2,8 @@ package com.skmwizard.user.services;
 
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 public interface AccountService {
 
     /**
@@ -28,6 +30,16 @@ public interface AccountService {
      */
     Mono<User> signUp(User user);
 
+    /**
+     * 사용자 회원가입 (수신 동의 포함)
+     * <pre>Cognito 등록, 사용자 등록, 수신 동의 등록을 동시에 처리하고, 하나라도 실패하면 완료된 등록을 되돌린다.</pre>
+     *
+     * @param user       사용자 정보
+     * @param agreements 수신 동의 목록
+     * @return 사용자 회원가입 정보
+     */
+    Mono<User> signUp(User user, Collection<AgreeReceive> agreements);
+
     /**
      * 사용자 로그인
      *
@@ -6,6 +6,7 @@ import reactor.core.publisher.Mono;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.List;
 
 public interface AgreeReceiveService {
     Mono<AgreeReceive> get(@NotBlank String code);
@@ -14,6 +15,15 @@ public interface AgreeReceiveService {
 
     Mono<AgreeReceive> add(@NotBlank String username, @NotNull @Valid AgreeReceive request);
 
+    /**
+     * 수신 동의 일괄 등록
+     * <pre>
+     * 이미 동의한 코드를 한 번에 확인하고 한 번에 등록한다. 이미 동의한 코드가 있으면 아무것도 등록하지 않고 DuplicateKeyException.
+     * agreedDatetime 이 없으면 등록 시각으로 채운다.
+     * </pre>
+     */
+    Flux<AgreeReceive> addAll(@NotBlank String username, @NotNull @Valid List<AgreeReceive> requests);
+
     Mono<AgreeReceive> edit(@NotBlank String username, @NotBlank String code, @NotNull @Valid AgreeReceive request);
 
     Mono<Void> remove(@NotBlank String code);
@@ -4,6 +4,8 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.time.LocalDateTime;
+
 @Getter
 @ToString
 @Builder
@@ -13,4 +15,9 @@ public class User {
     private final String name;
     private final String password;
     private final String phoneNumber;
+    private final LocalDateTime createdDatetime;
+    /**
+     * 저장된 문서 버전, 수정 요청에서는 기대하는 버전 (없으면 확인하지 않는다)
+     */
+    private final Long version;
 }
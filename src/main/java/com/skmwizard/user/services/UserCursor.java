@@ -0,0 +1,57 @@
+package com.skmwizard.user.services;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 사용자 목록 keyset 페이지의 위치 (createdDatetime, email)
+ * <pre>클라이언트에는 내용을 알 수 없는 문자열(encode)로 전달하고, 다음 페이지 요청 시 decode 하여 이 위치 다음부터 조회한다.</pre>
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class UserCursor {
+    private static final String SEPARATOR = "\n";
+
+    private final LocalDateTime createdDatetime;
+    private final String email;
+
+    public UserCursor(LocalDateTime createdDatetime, String email) {
+        this.createdDatetime = createdDatetime;
+        this.email = email;
+    }
+
+    /**
+     * 페이지의 마지막 사용자 다음 위치
+     */
+    public static UserCursor after(User user) {
+        return new UserCursor(user.getCreatedDatetime(), user.getEmail());
+    }
+
+    public String encode() {
+        String value = createdDatetime + SEPARATOR + email;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException 잘못된 위치 문자열
+     */
+    public static UserCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("invalid cursor: " + token);
+            }
+            return new UserCursor(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (DateTimeParseException exception) {
+            throw new IllegalArgumentException("invalid cursor: " + token, exception);
+        }
+    }
+}
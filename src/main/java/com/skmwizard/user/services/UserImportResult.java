@@ -0,0 +1,27 @@
+package com.skmwizard.user.services;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 사용자 일괄 등록의 행 단위 처리 결과
+ */
+@Getter
+@Builder
+@ToString
+public class UserImportResult {
+    /**
+     * 데이터 행 번호 (1부터 시작)
+     */
+    private final long row;
+
+    private final String email;
+
+    private final boolean succeeded;
+
+    /**
+     * 실패 사유
+     */
+    private final String reason;
+}
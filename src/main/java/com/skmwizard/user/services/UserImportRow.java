@@ -0,0 +1,20 @@
+package com.skmwizard.user.services;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 사용자 일괄 등록의 입력 행
+ */
+@Getter
+@Builder
+@ToString
+public class UserImportRow {
+    private final User user;
+
+    /**
+     * 입력 검증 실패 사유, 있으면 등록하지 않고 실패로 처리한다.
+     */
+    private final String rejection;
+}
@@ -0,0 +1,22 @@
+package com.skmwizard.user.services;
+
+import reactor.core.publisher.Flux;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+public interface UserImportService {
+
+    /**
+     * 사용자 일괄 등록
+     * <pre>
+     * Cognito 등록은 제한된 동시성으로 처리하고, DB 등록은 묶음 단위 unordered bulk insert 로 처리한다.
+     * DB 등록에 실패한 행은 Cognito 사용자를 지워 다시 등록할 수 있게 한다.
+     * </pre>
+     *
+     * @param username 등록하는 관리자 아이디
+     * @param rows     등록할 사용자 목록 (email, password 필수), 검증에 실패한 행은 rejection 을 채워 전달한다.
+     * @return 행 단위 처리 결과, 처리가 끝나는 순서로 발행한다.
+     */
+    Flux<UserImportResult> addAll(@NotBlank String username, @NotNull Flux<UserImportRow> rows);
+}
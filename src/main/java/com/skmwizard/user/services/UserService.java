@@ -14,9 +14,57 @@ public interface UserService {
 
     Flux<User> get(@NotNull User user);
 
+    /**
+     * 사용자 목록 페이지 조회 (createdDatetime 내림차순)
+     * <pre>skip, limit 을 DB 쿼리로 처리한다.</pre>
+     *
+     * @param user   조회 조건
+     * @param offset 건너뛸 사용자 수
+     * @param limit  최대 사용자 수
+     */
+    Flux<User> get(@NotNull User user, long offset, int limit);
+
+    /**
+     * 사용자 목록 keyset 페이지 조회 (createdDatetime, email 내림차순)
+     * <pre>페이지 깊이와 관계없이 인덱스에서 cursor 위치부터 limit 개만 읽는다.</pre>
+     *
+     * @param user   조회 조건
+     * @param cursor 이전 페이지의 마지막 위치, null 이면 처음부터
+     * @param limit  최대 사용자 수
+     */
+    Flux<User> get(@NotNull User user, UserCursor cursor, int limit);
+
+    /**
+     * 조건에 맞는 사용자 전체를 DB 커서에서 바로 발행 (createdDatetime 내림차순)
+     * <pre>구독자가 요청한 만큼 batchSize 단위로 읽으므로 결과 수와 관계없이 메모리 사용량이 일정하다.</pre>
+     *
+     * @param user      조회 조건
+     * @param batchSize 커서가 한 번에 가져올 문서 수
+     */
+    Flux<User> stream(@NotNull User user, int batchSize);
+
+    /**
+     * 사용자 검색
+     * <pre>email, name, phoneNumber 중 하나에 검색어가 포함된 사용자, 한 글자 검색어는 접두어로 검색한다.</pre>
+     *
+     * @param query 검색어
+     * @param limit 최대 사용자 수
+     */
+    Flux<User> search(@NotBlank String query, int limit);
+
     Mono<User> edit(@NotBlank String username, @NotNull User user);
 
     Mono<Void> remove(@NotBlank String username);
 
+    /**
+     * 조건에 맞는 사용자 수
+     * <pre>같은 조건의 결과는 user.count.cacheTtl 동안 재사용한다.</pre>
+     */
     Mono<Long> count(@NotBlank User user);
+
+    /**
+     * 조건에 맞는 사용자 수 추정치
+     * <pre>조건이 없으면 컬렉션 메타데이터(estimatedDocumentCount)를 사용하고, 조건이 있으면 count 와 같다.</pre>
+     */
+    Mono<Long> estimatedCount(@NotNull User user);
 }
@@ -12,4 +12,13 @@ public interface VerificationService {
     Mono<Boolean> exists(Verification verification);
 
     Mono<Void> remove(Verification verification);
+
+    /**
+     * 일회용 인증번호 사용
+     * <pre>인증번호 확인과 삭제를 한 번에 처리하므로, 같은 인증번호로 동시에 요청해도 하나만 성공한다.</pre>
+     *
+     * @param verification 확인할 인증 정보 (checker, verificationCode)
+     * @return 일치하고 만료되지 않았으면 true
+     */
+    Mono<Boolean> consume(Verification verification);
 }
@@ -3,6 +3,7 @@ package com.skmwizard.user.services.implementations;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotNull;
@@ -14,6 +15,9 @@ import java.time.LocalDateTime;
  */
 
 @Document("user_agree")
+// existsByCodeAndEmail, 사용자별 수신 동의 조회/삭제는 email 접두어로 사용한다.
+// 사용자별 코드는 하나만 둔다. 유니크가 아닌 email_code 가 이미 있으면 지우고, 중복 문서를 정리해야 다시 만들어진다.
+@CompoundIndex(name = "email_code", def = "{'email': 1, 'code': 1}", unique = true, background = true)
 @Setter
 @Getter
 @ToString(doNotUseGetters = true)
@@ -2,17 +2,29 @@ package com.skmwizard.user.services.implementations;
 
 import com.skmwizard.user.clouds.CloudUserManager;
 import com.skmwizard.user.services.AccountService;
+import com.skmwizard.user.services.AgreeReceive;
+import com.skmwizard.user.services.AgreeReceiveService;
 import com.skmwizard.user.services.Token;
 import com.skmwizard.user.services.User;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
 import java.rmi.NoSuchObjectException;
 import java.time.LocalDateTime;
-import java.util.NoSuchElementException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Primary
@@ -21,14 +33,26 @@ class DefaultAccountService implements AccountService {
     private final CloudUserManager cloudUserManager;
     private final UserConverter userConverter;
     private final UserRepository userRepository;
+    private final AgreeReceiveService agreeReceiveService;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final UserAttributeSync userAttributeSync;
+    private final UserProfileCache userProfileCache;
 
     public DefaultAccountService(
         CloudUserManager cloudUserManager,
         UserConverter userConverter,
-        UserRepository userRepository) {
+        UserRepository userRepository,
+        AgreeReceiveService agreeReceiveService,
+        ReactiveMongoTemplate mongoTemplate,
+        UserAttributeSync userAttributeSync,
+        UserProfileCache userProfileCache) {
         this.cloudUserManager = cloudUserManager;
         this.userConverter = userConverter;
         this.userRepository = userRepository;
+        this.agreeReceiveService = agreeReceiveService;
+        this.mongoTemplate = mongoTemplate;
+        this.userAttributeSync = userAttributeSync;
+        this.userProfileCache = userProfileCache;
     }
 
     @Override
@@ -51,19 +75,50 @@ class DefaultAccountService implements AccountService {
 
     @Override
     public Mono<User> signUp(User user) {
-        UserDocument parameter = new UserDocument(user.getEmail(),
-            null,
-            user.getName(),
-            user.getPhoneNumber(),
-            LocalDateTime.now(),
-            user.getEmail(),
-            LocalDateTime.now(),
-            user.getEmail());
-        return cloudUserManager.register(user)
-            .flatMap(response ->
-                // DB에 사용자 등록
-                userRepository.save(parameter))
-            .map(userConverter::converts);
+        return signUp(user, Collections.emptyList());
+    }
+
+    /**
+     * 회원가입 Saga
+     * <pre>
+     * Cognito 등록(가입, 승인)과 수신 동의 등록을 동시에 실행하고, 둘 다 성공하면 사용자 문서를 등록한다.
+     * 사용자 문서 insert 가 가입을 확정하는 마지막 단계이다. UserChangeStreamPublisher 가 이 insert 를 USER_CREATED 로 발행하므로,
+     * 끝나지 않은 가입은 발행되지 않는다. (사용자 문서를 먼저 넣고 되돌리면 USER_CREATED 뒤에 USER_DELETED 가 발행된다)
+     * 하나라도 실패하면 성공한 단계를 되돌리고 처음 실패한 원인을 전달한다.
+     * 사용자 문서는 insert 로 등록하므로 이미 있는 문서를 덮어쓰지 않는다.
+     * 수신 동의는 AgreeReceiveService.addAll 로 중복 확인 한 번, 등록 한 번에 처리한다.
+     * 수신 동의는 이번 가입의 동의 시각으로 등록하고 되돌릴 때도 그 시각으로 찾으므로, 가입 전부터 있던 동의나
+     * 일부만 등록되고 실패한 경우에도 이번 가입이 등록한 것만 지운다.
+     * </pre>
+     */
+    @Override
+    public Mono<User> signUp(User user, Collection<AgreeReceive> agreements) {
+        String username = user.getEmail();
+        // DB 에는 밀리초까지 저장되므로 되돌릴 때 같은 값으로 찾을 수 있도록 자른다.
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        UserDocument parameter = userConverter.converts(user);
+        parameter.setCreator(username);
+        parameter.setCreatedDatetime(now);
+        parameter.setUpdater(username);
+        parameter.setUpdatedDatetime(now);
+        parameter.updateSearchTokens();
+        List<AgreeReceive> agreeReceives = agreements.stream()
+            .map(agreement -> AgreeReceive.builder().code(agreement.getCode()).agreedDatetime(now).build())
+            .collect(Collectors.toList());
+
+        return Mono.zip(
+            attempt(cloudUserManager.register(user)),
+            attempt(agreeReceiveService.addAll(username, agreeReceives).then()))
+            .flatMap(outcomes -> {
+                Optional<Throwable> registered = outcomes.getT1();
+                Optional<Throwable> agreed = outcomes.getT2();
+                if (registered.isPresent() || agreed.isPresent()) {
+                    return rollback(username, !registered.isPresent(), agreeReceives, now, registered.orElseGet(agreed::get));
+                }
+                return userRepository.insert(parameter)
+                    .map(userConverter::converts)
+                    .onErrorResume(throwable -> rollback(username, true, agreeReceives, now, throwable));
+            });
     }
 
     @Override
@@ -78,32 +133,24 @@ class DefaultAccountService implements AccountService {
 
     @Override
     public Mono<User> updateUserInfo(String username, User user) {
-        return cloudUserManager.edit(user)
-            .flatMap(edited ->
-                userRepository.findById(username)
-                    .switchIfEmpty(Mono.error(new NoSuchElementException(user.getEmail())))
-                    .flatMap(userDocument -> {
-                        userDocument.setName(user.getName());
-                        userDocument.setPhoneNumber(user.getPhoneNumber());
-                        userDocument.setUpdatedDatetime(LocalDateTime.now());
-                        userDocument.setUpdater(username);
-                        return userRepository.save(userDocument);
-                    })
-            ).map(userConverter::converts);
+        return userAttributeSync.sync(username, username, user)
+            .map(userConverter::converts)
+            .flatMap(updated -> userProfileCache.evict(username).thenReturn(updated));
     }
 
     @Override
     public Mono<Void> changePicture(String username, String picture) {
-        return userRepository.findById(username)
-            .switchIfEmpty(Mono.error(new NoSuchObjectException(username)))
-            .flatMap(userDocument -> {
-                userDocument.setPicture(picture);
-                userDocument.setUpdatedDatetime(LocalDateTime.now());
-                userDocument.setUpdater(username);
-                return userRepository.save(userDocument);
-            })
-            .doOnSuccess(userDocument -> log.debug("change picture complete"))
-            .then();
+        Update update = new Update()
+            .set("picture", picture)
+            .set("updatedDatetime", LocalDateTime.now())
+            .set("updater", username)
+            .inc("version", 1);
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(username).and("deletionRequestedDatetime").exists(false)), update, UserDocument.class)
+            .flatMap(result -> result.getMatchedCount() == 0
+                ? Mono.error(new NoSuchObjectException(username))
+                : Mono.just(result))
+            .doOnSuccess(result -> log.debug("change picture complete"))
+            .then(userProfileCache.evict(username));
     }
 
     @Override
@@ -115,4 +162,44 @@ class DefaultAccountService implements AccountService {
     public Mono<Token> refreshToken(String refreshToken) {
         return cloudUserManager.refreshToken(refreshToken);
     }
+
+    /**
+     * Saga 단계 실행 결과, 실패하면 원인을 담는다.
+     */
+    private static Mono<Optional<Throwable>> attempt(Mono<?> step) {
+        return step.then(Mono.just(Optional.<Throwable>empty()))
+            .onErrorResume(throwable -> Mono.just(Optional.of(throwable)));
+    }
+
+    /**
+     * 가입 실패 시 이번 가입이 끝낸 단계를 되돌리고 원인을 전달한다.
+     *
+     * @param registered    Cognito 등록이 성공했는지
+     * @param agreeReceives 이번 가입의 수신 동의
+     * @param agreedAt      이번 가입의 동의 시각
+     */
+    private <T> Mono<T> rollback(String username, boolean registered, List<AgreeReceive> agreeReceives, LocalDateTime agreedAt, Throwable cause) {
+        log.warn("[signUp] username: {} failed, compensating completed steps.", username, cause);
+        List<Mono<?>> compensations = new ArrayList<>();
+        if (registered) {
+            compensations.add(compensate("cloud user", username, cloudUserManager.remove(username)));
+        }
+        if (!agreeReceives.isEmpty()) {
+            Query query = Query.query(Criteria.where("email").is(username)
+                .and("code").in(agreeReceives.stream().map(AgreeReceive::getCode).collect(Collectors.toList()))
+                .and("agreedDatetime").is(agreedAt));
+            compensations.add(compensate("agreements", username, mongoTemplate.remove(query, AgreeReceiveDocument.class)));
+        }
+        return Mono.when(compensations).then(Mono.error(cause));
+    }
+
+    /**
+     * 보상 단계 실행, 실패해도 원래 실패 원인을 가리지 않도록 로그만 남긴다.
+     */
+    private static Mono<?> compensate(String step, String username, Mono<?> compensation) {
+        return compensation
+            .doOnSuccess(result -> log.info("[signUp] username: {}, {} rolled back.", username, step))
+            .doOnError(throwable -> log.error("[signUp] username: {}, {} rollback failed.", username, step, throwable))
+            .onErrorResume(throwable -> Mono.empty());
+    }
 }
@@ -1,12 +1,18 @@
 package com.skmwizard.user.services.implementations;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.skmwizard.user.services.AgreeReceive;
 import com.skmwizard.user.services.AgreeReceiveService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import reactor.core.publisher.Flux;
@@ -16,16 +22,35 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Validated
-@RequiredArgsConstructor
 @Slf4j
 class DefaultAgreeReceiveService implements AgreeReceiveService {
     private final AgreeReceiveRepository repository;
     private final AgreeReceiveConverter converter;
+    private final ReactiveMongoTemplate mongoTemplate;
+    /**
+     * 목록, 건수용 (secondary 우선)
+     */
+    private final ReactiveMongoTemplate secondaryMongoTemplate;
+
+    DefaultAgreeReceiveService(AgreeReceiveRepository repository,
+                               AgreeReceiveConverter converter,
+                               ReactiveMongoTemplate mongoTemplate,
+                               @Qualifier(MongoConfiguration.SECONDARY) ReactiveMongoTemplate secondaryMongoTemplate) {
+        this.repository = repository;
+        this.converter = converter;
+        this.mongoTemplate = mongoTemplate;
+        this.secondaryMongoTemplate = secondaryMongoTemplate;
+    }
 
     @Override
     public Mono<AgreeReceive> get(@NotBlank String code) {
@@ -40,12 +65,15 @@ class DefaultAgreeReceiveService implements AgreeReceiveService {
 
         return Optional.ofNullable(page)
             .map(pageNumber -> {
-                long size = Optional.ofNullable(sizePerPage).orElse(20);
-                return repository.findAll(example)
-                    .skip(pageNumber * size)
-                    .take(size)
+                int size = Optional.ofNullable(sizePerPage).orElse(20);
+                // skip, limit 을 DB 에서 처리한다.
+                Query query = new Query(Criteria.byExample(example))
+                    .skip(pageNumber * (long) size)
+                    .limit(size);
+                return secondaryMongoTemplate.find(query, AgreeReceiveDocument.class)
                     .map(converter::converts);
-            }).orElseGet(() -> repository.findAll(example).map(converter::converts));
+            }).orElseGet(() -> secondaryMongoTemplate.find(new Query(Criteria.byExample(example)), AgreeReceiveDocument.class)
+                .map(converter::converts));
     }
 
     @Override
@@ -66,6 +94,40 @@ class DefaultAgreeReceiveService implements AgreeReceiveService {
             });
     }
 
+    @Override
+    public Flux<AgreeReceive> addAll(@NotBlank String email, @NotNull @Valid List<AgreeReceive> requests) {
+        log.debug("[addAll] email: {}, AgreeReceive: {}", email, requests);
+        LocalDateTime now = LocalDateTime.now();
+        // 같은 코드를 여러 번 보내면 한 번만 등록한다.
+        Map<String, AgreeReceiveDocument> documents = new LinkedHashMap<>();
+        for (AgreeReceive request : requests) {
+            AgreeReceiveDocument document = converter.converts(request);
+            document.setEmail(email);
+            document.setAgreedDatetime(Optional.ofNullable(request.getAgreedDatetime()).orElse(now));
+            documents.putIfAbsent(document.getCode(), document);
+        }
+        if (documents.isEmpty()) {
+            return Flux.empty();
+        }
+
+        Query existing = Query.query(Criteria.where("email").is(email).and("code").in(documents.keySet()));
+        existing.fields().include("code");
+        return mongoTemplate.find(existing, AgreeReceiveDocument.class)
+            .map(AgreeReceiveDocument::getCode)
+            .collectList()
+            .flatMapMany(duplicates -> {
+                if (!duplicates.isEmpty()) {
+                    return Flux.error(() -> new DuplicateKeyException(String.join(",", duplicates)));
+                }
+                List<AgreeReceiveDocument> inserting = new ArrayList<>(documents.values());
+                return mongoTemplate.insertAll(inserting)
+                    // 확인한 뒤 다른 요청이 같은 코드를 먼저 등록하면 email_code 유니크 인덱스로 실패한다.
+                    .onErrorResume(DuplicateKeyException.class, exception -> rollback(email, inserting, exception))
+                    .doOnComplete(() -> log.info("[addAll] email: {}, {} AgreeReceive added.", email, documents.size()))
+                    .map(converter::converts);
+            });
+    }
+
     @Override
     public Mono<AgreeReceive> edit(@NotBlank String email, @NotBlank String code, @NotNull @Valid AgreeReceive request) {
         log.debug("[edit] code: {}, AgreeReceive: {}", code, request);
@@ -89,7 +151,45 @@ class DefaultAgreeReceiveService implements AgreeReceiveService {
 
     @Override
     public Mono<Long> count(AgreeReceive parameter) {
-        return repository.count(makeDocumentExample(parameter));
+        return secondaryMongoTemplate.count(new Query(Criteria.byExample(makeDocumentExample(parameter))), AgreeReceiveDocument.class);
+    }
+
+    /**
+     * insertAll 은 순서대로 넣다가 중복된 문서에서 멈추므로, 그 앞까지 이번 요청이 넣은 수신 동의를 지우고 중복된 코드를 알린다.
+     * <pre>유니크 인덱스 때문에 앞서 넣은 (email, code) 는 이번 요청의 것뿐이다.</pre>
+     */
+    private Flux<AgreeReceiveDocument> rollback(String email, List<AgreeReceiveDocument> documents, DuplicateKeyException exception) {
+        int failed = failedIndex(exception);
+        if (failed < 0 || failed >= documents.size()) {
+            return Flux.error(exception);
+        }
+        List<String> inserted = documents.subList(0, failed).stream()
+            .map(AgreeReceiveDocument::getCode)
+            .collect(Collectors.toList());
+        Mono<Void> remove = inserted.isEmpty()
+            ? Mono.empty()
+            : mongoTemplate.remove(Query.query(Criteria.where("email").is(email).and("code").in(inserted)), AgreeReceiveDocument.class)
+            .doOnNext(result -> log.info("[addAll] email: {}, {} AgreeReceive rolled back.", email, result.getDeletedCount()))
+            .then();
+        String duplicate = documents.get(failed).getCode();
+        log.info("[addAll] email: {}, AgreeReceive: {} added concurrently.", email, duplicate);
+        return remove.thenMany(Flux.error(() -> new DuplicateKeyException(duplicate)));
+    }
+
+    /**
+     * 중복으로 실패한 문서의 순번, 알 수 없으면 -1
+     */
+    private static int failedIndex(DuplicateKeyException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException) {
+                return ((MongoBulkWriteException) cause).getWriteErrors().stream()
+                    .filter(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY)
+                    .mapToInt(BulkWriteError::getIndex)
+                    .min()
+                    .orElse(-1);
+            }
+        }
+        return -1;
     }
 
     private Example<AgreeReceiveDocument> makeDocumentExample(AgreeReceive parameter) {
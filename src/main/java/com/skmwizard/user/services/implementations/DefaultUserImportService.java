@@ -0,0 +1,202 @@
+package com.skmwizard.user.services.implementations;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.skmwizard.user.clouds.CloudUserManager;
+import com.skmwizard.user.services.User;
+import com.skmwizard.user.services.UserImportResult;
+import com.skmwizard.user.services.UserImportRow;
+import com.skmwizard.user.services.UserImportService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 사용자 일괄 등록
+ * <pre>
+ * 1. 검증에 실패한 행을 제외하고, 행마다 CloudUserManager.register 를 최대 parallelism 개까지 동시에 호출한다. (Cognito 한도는 CloudUserManager 가 관리)
+ * 2. Cognito 등록에 성공한 사용자를 batchSize 개씩 묶어 unordered insertMany 로 저장한다.
+ *    묶음은 저장이 끝나야 다음 묶음을 요청하므로, DB 가 느리면 입력을 읽는 속도도 함께 늦춘다.
+ * 3. 저장에 실패한 행은 Cognito 사용자를 지운다. (회원가입 Saga 와 같은 보상) 지우지 못하면 실패 사유에 함께 남긴다.
+ * 4. 행마다 성공/실패 결과를 발행하고, progressInterval 행마다 진행 상황을 로그로 남긴다.
+ * </pre>
+ */
+@Service
+@Slf4j
+class DefaultUserImportService implements UserImportService {
+    private final CloudUserManager cloudUserManager;
+    private final UserConverter userConverter;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int parallelism;
+    private final int batchSize;
+    private final int progressInterval;
+
+    DefaultUserImportService(
+        CloudUserManager cloudUserManager,
+        UserConverter userConverter,
+        ReactiveMongoTemplate mongoTemplate,
+        @Value("${user.import.parallelism:8}") int parallelism,
+        @Value("${user.import.batchSize:500}") int batchSize,
+        @Value("${user.import.progressInterval:1000}") int progressInterval) {
+        this.cloudUserManager = cloudUserManager;
+        this.userConverter = userConverter;
+        this.mongoTemplate = mongoTemplate;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.progressInterval = progressInterval;
+    }
+
+    @Override
+    public Flux<UserImportResult> addAll(String username, Flux<UserImportRow> rows) {
+        log.debug("[addAll] username: {}", username);
+        AtomicLong processed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        return rows.index()
+            .flatMap(indexed -> register(indexed.getT1() + 1, indexed.getT2()), parallelism)
+            .buffer(batchSize)
+            .concatMap(batch -> save(username, batch), 1)
+            .doOnNext(result -> {
+                long count = processed.incrementAndGet();
+                if (!result.isSucceeded()) {
+                    failed.incrementAndGet();
+                }
+                if (count % progressInterval == 0) {
+                    log.info("[addAll] username: {}, processed: {}, failed: {}", username, count, failed.get());
+                }
+            })
+            .doOnComplete(() -> log.info("[addAll] username: {} completed, processed: {}, failed: {}", username, processed.get(), failed.get()));
+    }
+
+    private Mono<Registration> register(long row, UserImportRow importRow) {
+        User user = Optional.ofNullable(importRow.getUser()).orElseGet(() -> User.builder().build());
+        if (importRow.getRejection() != null) {
+            return Mono.just(new Registration(row, user, importRow.getRejection()));
+        }
+        if (isBlank(user.getEmail()) || isBlank(user.getPassword())) {
+            return Mono.just(new Registration(row, user, "email and password are required."));
+        }
+        return cloudUserManager.register(user)
+            .map(registered -> new Registration(row, user, null))
+            .onErrorResume(throwable -> Mono.just(new Registration(row, user, throwable.getMessage())));
+    }
+
+    /**
+     * Cognito 등록에 성공한 사용자를 한 번의 unordered insertMany 로 저장
+     */
+    private Flux<UserImportResult> save(String username, List<Registration> batch) {
+        List<Registration> registered = batch.stream()
+            .filter(registration -> registration.reason == null)
+            .collect(Collectors.toList());
+        if (registered.isEmpty()) {
+            return Flux.fromIterable(batch).map(registration -> registration.toResult(null));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Document> documents = new ArrayList<>(registered.size());
+        for (Registration registration : registered) {
+            UserDocument document = userConverter.converts(registration.user);
+            document.setCreator(username);
+            document.setCreatedDatetime(now);
+            document.setUpdater(username);
+            document.setUpdatedDatetime(now);
+            document.updateSearchTokens();
+            Document converted = new Document();
+            mongoTemplate.getConverter().write(document, converted);
+            documents.add(converted);
+        }
+
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(UserDocument.class))
+            .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+            .map(result -> Collections.<Integer, String>emptyMap())
+            .onErrorResume(MongoBulkWriteException.class, exception -> Mono.just(exception.getWriteErrors().stream()
+                .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))))
+            .onErrorResume(throwable -> Mono.just(failAll(registered.size(), throwable.getMessage())))
+            .doOnNext(failed -> log.info("[addAll] batch saved: {}, failed: {}", registered.size() - failed.size(), failed.size()))
+            .flatMap(failed -> compensate(registered, failed))
+            .flatMapMany(failed -> {
+                List<UserImportResult> results = new ArrayList<>(batch.size());
+                for (Registration registration : batch) {
+                    if (registration.reason != null) {
+                        results.add(registration.toResult(null));
+                    }
+                }
+                for (int index = 0; index < registered.size(); index++) {
+                    results.add(registered.get(index).toResult(failed.get(index)));
+                }
+                return Flux.fromIterable(results);
+            });
+    }
+
+    /**
+     * 저장하지 못한 행의 Cognito 사용자 삭제
+     *
+     * @return 행 위치별 실패 사유, 삭제에도 실패하면 사유를 덧붙인다.
+     */
+    private Mono<Map<Integer, String>> compensate(List<Registration> registered, Map<Integer, String> failed) {
+        if (failed.isEmpty()) {
+            return Mono.just(failed);
+        }
+        Map<Integer, String> reasons = new ConcurrentHashMap<>(failed);
+        return Flux.fromIterable(failed.keySet())
+            .flatMap(index -> {
+                String email = registered.get(index).user.getEmail();
+                return cloudUserManager.remove(email)
+                    .then()
+                    .onErrorResume(throwable -> {
+                        log.error("[addAll] email: {} was registered in Cognito but could not be removed after the insert failed.", email, throwable);
+                        reasons.computeIfPresent(index, (key, reason) -> reason + " (Cognito user not removed: " + throwable.getMessage() + ")");
+                        return Mono.empty();
+                    });
+            }, parallelism)
+            .then(Mono.fromSupplier(() -> reasons));
+    }
+
+    private static Map<Integer, String> failAll(int size, String reason) {
+        Map<Integer, String> failed = new HashMap<>(size);
+        for (int index = 0; index < size; index++) {
+            failed.put(index, reason);
+        }
+        return failed;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    @AllArgsConstructor
+    private static class Registration {
+        private final long row;
+        private final User user;
+        /**
+         * Cognito 등록 실패 사유, 성공하면 null
+         */
+        private final String reason;
+
+        UserImportResult toResult(String saveFailure) {
+            String failure = reason != null ? reason : saveFailure;
+            return UserImportResult.builder()
+                .row(row)
+                .email(user.getEmail())
+                .succeeded(failure == null)
+                .reason(failure)
+                .build();
+        }
+    }
+}
@@ -2,12 +2,21 @@ package com.skmwizard.user.services.implementations;
 
 import com.skmwizard.user.clouds.CloudUserManager;
 import com.skmwizard.user.services.User;
+import com.skmwizard.user.services.UserCursor;
 import com.skmwizard.user.services.UserService;
+import com.skmwizard.user.support.SingleFlightCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -15,23 +24,53 @@ import reactor.core.publisher.Mono;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.rmi.NoSuchObjectException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
 
 @Service
 @Primary
 @Slf4j
 class DefaultUserService implements UserService {
+    /**
+     * 목록 정렬 순서, createdDatetime_email 인덱스와 같은 순서
+     */
+    private static final Sort LISTING_ORDER = Sort.by(Sort.Order.desc("createdDatetime"), Sort.Order.desc("_id"));
+
     private final CloudUserManager cloudUserManager;
     private final UserRepository userRepository;
     private final UserConverter userConverter;
+    private final UserAttributeSync userAttributeSync;
+    private final ReactiveMongoTemplate mongoTemplate;
+    /**
+     * 목록, 건수, 검색용 (secondary 우선)
+     */
+    private final ReactiveMongoTemplate secondaryMongoTemplate;
+    private final UserProfileCache userProfileCache;
+    /**
+     * 조건별 사용자 수, 같은 조건의 동시 요청은 한 번만 센다.
+     */
+    private final SingleFlightCache<String, Long> counts;
 
     DefaultUserService(CloudUserManager cloudUserManager,
                        UserRepository userRepository,
-                       UserConverter userConverter) {
+                       UserConverter userConverter,
+                       UserAttributeSync userAttributeSync,
+                       ReactiveMongoTemplate mongoTemplate,
+                       @Qualifier(MongoConfiguration.SECONDARY) ReactiveMongoTemplate secondaryMongoTemplate,
+                       UserProfileCache userProfileCache,
+                       MeterRegistry meterRegistry,
+                       @Value("${user.count.cacheTtl:30s}") Duration countCacheTtl,
+                       @Value("${user.count.maximumSize:1000}") long countMaximumSize) {
         this.cloudUserManager = cloudUserManager;
         this.userRepository = userRepository;
         this.userConverter = userConverter;
+        this.userAttributeSync = userAttributeSync;
+        this.mongoTemplate = mongoTemplate;
+        this.secondaryMongoTemplate = secondaryMongoTemplate;
+        this.userProfileCache = userProfileCache;
+        this.counts = new SingleFlightCache<>(countCacheTtl, countMaximumSize, meterRegistry, "user.count");
     }
 
     @Override
@@ -42,6 +81,7 @@ class DefaultUserService implements UserService {
         parameter.setCreatedDatetime(LocalDateTime.now());
         parameter.setUpdater(username);
         parameter.setUpdatedDatetime(LocalDateTime.now());
+        parameter.updateSearchTokens();
         return cloudUserManager.register(user)
             .flatMap(response ->
                 // DB에 사용자 등록
@@ -52,50 +92,130 @@ class DefaultUserService implements UserService {
     @Override
     public Mono<User> get(String username) {
         log.debug("[get] username: {}", username);
-        return userRepository.findById(username)
-            .switchIfEmpty(Mono.error(new NoSuchObjectException(username)))
-            .map(userConverter::converts);
+        return userProfileCache.get(username, key -> userRepository.findById(key)
+            .filter(document -> document.getDeletionRequestedDatetime() == null)
+            .switchIfEmpty(Mono.error(new NoSuchObjectException(key)))
+            .map(userConverter::converts));
     }
 
     @Override
     public Flux<User> get(@NotNull User user) {
         log.debug("[get] user: {}", user);
-        return userRepository.findAll(this.makeExample(user), Sort.by(Sort.Order.desc("createdDatetime")))
+        Query query = new Query(active(Criteria.byExample(this.makeExample(user))))
+            .with(Sort.by(Sort.Order.desc("createdDatetime")));
+        return secondaryMongoTemplate.find(query, UserDocument.class)
             .switchIfEmpty(Mono.error(NoSuchElementException::new))
             .map(userConverter::converts);
     }
 
+    @Override
+    public Flux<User> get(@NotNull User user, long offset, int limit) {
+        log.debug("[get] user: {}, offset: {}, limit: {}", user, offset, limit);
+        Query query = new Query(active(Criteria.byExample(this.makeExample(user))))
+            .with(LISTING_ORDER)
+            .skip(offset)
+            .limit(limit);
+        return secondaryMongoTemplate.find(query, UserDocument.class)
+            .map(userConverter::converts);
+    }
+
+    @Override
+    public Flux<User> get(@NotNull User user, UserCursor cursor, int limit) {
+        log.debug("[get] user: {}, cursor: {}, limit: {}", user, cursor, limit);
+        Criteria criteria = Criteria.byExample(this.makeExample(user));
+        if (cursor != null) {
+            criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+                Criteria.where("createdDatetime").lt(cursor.getCreatedDatetime()),
+                Criteria.where("createdDatetime").is(cursor.getCreatedDatetime()).and("_id").lt(cursor.getEmail())));
+        }
+        Query query = new Query(active(criteria))
+            .with(LISTING_ORDER)
+            .limit(limit);
+        return secondaryMongoTemplate.find(query, UserDocument.class)
+            .map(userConverter::converts);
+    }
+
+    @Override
+    public Flux<User> stream(@NotNull User user, int batchSize) {
+        log.debug("[stream] user: {}, batchSize: {}", user, batchSize);
+        Query query = new Query(active(Criteria.byExample(this.makeExample(user))))
+            .with(LISTING_ORDER)
+            .cursorBatchSize(batchSize);
+        return secondaryMongoTemplate.find(query, UserDocument.class)
+            .map(userConverter::converts);
+    }
+
+    @Override
+    public Flux<User> search(@NotBlank String query, int limit) {
+        log.debug("[search] query: {}, limit: {}", query, limit);
+        String normalized = UserSearchTokens.normalize(query);
+        String pattern = (normalized.length() < UserSearchTokens.GRAM ? "^" : "") + Pattern.quote(normalized);
+        // searchTokens 인덱스로 후보를 찾고, 후보만 원래 값과 대조한다.
+        Criteria criteria = Criteria.where("searchTokens").all(UserSearchTokens.query(normalized))
+            .orOperator(
+                Criteria.where("_id").regex(pattern, "i"),
+                Criteria.where("name").regex(pattern, "i"),
+                Criteria.where("phoneNumber").regex(pattern, "i"));
+        Query search = new Query(active(criteria))
+            .with(LISTING_ORDER)
+            .limit(limit);
+        return secondaryMongoTemplate.find(search, UserDocument.class)
+            .map(userConverter::converts);
+    }
+
     @Override
     public Mono<User> edit(@NotBlank String username, @NotNull User user) {
         log.debug("[edit] user: {}", user);
-        return cloudUserManager.edit(user)
-            .flatMap(edited ->
-                userRepository.findById(username)
-                    .switchIfEmpty(Mono.error(new NoSuchObjectException(username)))
-                    .flatMap(userDocument -> {
-                        userDocument.setEmail(user.getEmail());
-                        userDocument.setName(user.getName());
-                        userDocument.setPhoneNumber(user.getPhoneNumber());
-                        userDocument.setUpdatedDatetime(LocalDateTime.now());
-                        userDocument.setUpdater(username);
-                        return userRepository.save(userDocument);
-                    })
-            ).map(userConverter::converts);
+        return userAttributeSync.sync(username, user.getEmail(), user)
+            .map(userConverter::converts)
+            .flatMap(edited -> userProfileCache.evict(edited.getEmail()).thenReturn(edited));
     }
 
+    /**
+     * 탈퇴 요청
+     * <pre>사용자를 삭제 대기 상태로 표시만 하고, 실제 삭제는 UserDeletionWorker 가 처리한다.</pre>
+     */
     @Override
     public Mono<Void> remove(@NotBlank String username) {
         log.debug("[remove] username: {}", username);
-        return userRepository.deleteById(username)
-            .doFinally(signalType -> cloudUserManager.remove(username))
-            .doOnSuccess(v -> log.info("user: {} removed.", username))
-            .then();
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(username).and("deletionRequestedDatetime").exists(false));
+        Update update = new Update()
+            .set("deletionRequestedDatetime", now)
+            .set("deletionRetryDatetime", now)
+            .set("deletionAttempts", 0);
+        return mongoTemplate.updateFirst(query, update, UserDocument.class)
+            .doOnSuccess(result -> log.info("user: {} deletion requested.", username))
+            .then(userProfileCache.evict(username));
     }
 
     @Override
     public Mono<Long> count(@NotBlank User user) {
         log.debug("[get] count: {}", user);
-        return userRepository.count(this.makeExample(user));
+        String key = String.join("\n", String.valueOf(user.getEmail()), String.valueOf(user.getName()), String.valueOf(user.getPhoneNumber()));
+        return counts.get(key, k -> secondaryMongoTemplate.count(new Query(active(Criteria.byExample(this.makeExample(user)))), UserDocument.class));
+    }
+
+    /**
+     * 조건이 없으면 컬렉션 메타데이터의 전체 문서 수에서 삭제 대기 중인 사용자 수를 뺀다.
+     * <pre>삭제 대기 중인 사용자는 삭제될 때까지 deletionRetryDatetime 이 있으므로, sparse 인덱스로 센다.</pre>
+     */
+    @Override
+    public Mono<Long> estimatedCount(@NotNull User user) {
+        if (user.getEmail() != null || user.getName() != null || user.getPhoneNumber() != null) {
+            return count(user);
+        }
+        Mono<Long> total = secondaryMongoTemplate.execute(UserDocument.class, collection -> collection.estimatedDocumentCount())
+            .next();
+        Mono<Long> pending = secondaryMongoTemplate.count(Query.query(Criteria.where("deletionRetryDatetime").exists(true)), UserDocument.class);
+        return Mono.zip(total, pending, (estimated, deleting) -> Math.max(0, estimated - deleting));
+    }
+
+    /**
+     * 삭제 대기 중인 사용자를 뺀 조건
+     */
+    private static Criteria active(Criteria criteria) {
+        return new Criteria().andOperator(criteria, Criteria.where("deletionRequestedDatetime").exists(false));
     }
 
     private Example<UserDocument> makeExample(User user) {
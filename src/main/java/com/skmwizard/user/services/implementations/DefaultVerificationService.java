@@ -1,27 +1,106 @@
 package com.skmwizard.user.services.implementations;
 
+import com.mongodb.MongoCommandException;
 import com.skmwizard.user.services.Verification;
 import com.skmwizard.user.services.VerificationService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.PreDestroy;
 import java.rmi.NoSuchObjectException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author jongduck_yoon
  * @since 2020-06-12
  */
 @Service
-@RequiredArgsConstructor
+@ConditionalOnProperty(name = "verification.store", havingValue = "mongo", matchIfMissing = true)
 @Slf4j
 @Validated
 class DefaultVerificationService implements VerificationService {
+    /**
+     * MongoDB IndexOptionsConflict, 같은 키의 인덱스가 다른 옵션으로 이미 있음
+     */
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+
     private final VerificationRepository repository;
     private final VerificationConverter converter;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Duration lifetime;
+    private final Duration metricsInterval;
+    private final AtomicLong active = new AtomicLong();
+    private final Counter expired;
+    private Disposable schedule;
+
+    DefaultVerificationService(
+        VerificationRepository repository,
+        VerificationConverter converter,
+        ReactiveMongoTemplate mongoTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${verification.lifetime:3m}") Duration lifetime,
+        @Value("${verification.metricsInterval:30s}") Duration metricsInterval) {
+        this.repository = repository;
+        this.converter = converter;
+        this.mongoTemplate = mongoTemplate;
+        this.lifetime = lifetime;
+        this.metricsInterval = metricsInterval;
+        Gauge.builder("verification.codes.active", active, AtomicLong::get)
+            .description("The number of verification codes that have not expired")
+            .register(meterRegistry);
+        this.expired = Counter.builder("verification.codes.expired")
+            .description("The number of checks rejected because the code had expired")
+            .register(meterRegistry);
+    }
+
+    /**
+     * createdDatetime TTL 인덱스를 만들고 (만료 시간이 바뀌었으면 collMod 로 갱신), 유효한 인증번호 수를 주기적으로 센다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Index ttl = new Index().on("createdDatetime", Sort.Direction.ASC).named("createdDatetime_ttl").expire(lifetime);
+        mongoTemplate.indexOps(VerificationDocument.class).ensureIndex(ttl)
+            .onErrorResume(this::isIndexOptionsConflict, throwable -> mongoTemplate.executeCommand(new Document("collMod", mongoTemplate.getCollectionName(VerificationDocument.class))
+                .append("index", new Document("keyPattern", new Document("createdDatetime", 1))
+                    .append("expireAfterSeconds", lifetime.getSeconds())))
+                .thenReturn("createdDatetime_ttl"))
+            .subscribe(
+                name -> log.info("[start] verification TTL index {} expires after {}", name, lifetime),
+                throwable -> log.error("[start] verification TTL index failed.", throwable));
+
+        this.schedule = Flux.interval(Duration.ZERO, metricsInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> mongoTemplate.count(Query.query(Criteria.where("createdDatetime").gt(expiredBefore())), VerificationDocument.class)
+                .doOnNext(active::set)
+                .onErrorResume(throwable -> Mono.empty()))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
 
     @Override
     public Mono<Verification> add(Verification verification) {
@@ -36,6 +115,14 @@ class DefaultVerificationService implements VerificationService {
     public Mono<Boolean> exists(Verification verification) {
         return repository.findByCheckerAndVerificationCode(verification.getChecker(), verification.getVerificationCode())
             .switchIfEmpty(Mono.error(new NoSuchObjectException("인증번호를 확인해주세요.")))
+            // TTL 모니터는 약 1분 주기로 지우므로, 지워지기 전이라도 만료된 인증번호는 거부한다.
+            .flatMap(document -> {
+                if (document.getCreatedDatetime() != null && !document.getCreatedDatetime().isAfter(expiredBefore())) {
+                    expired.increment();
+                    return Mono.error(new NoSuchObjectException("인증번호가 만료되었습니다."));
+                }
+                return Mono.just(document);
+            })
             .doOnSuccess(saved -> log.info("[exists] Verification : {} exist.", saved.getChecker()))
             .map(document -> Boolean.TRUE);
     }
@@ -46,5 +133,32 @@ class DefaultVerificationService implements VerificationService {
             .doOnSuccess(aVoid -> log.info("[remove] Verification: {} removed.", verification.getChecker()));
     }
 
+    @Override
+    public Mono<Boolean> consume(Verification verification) {
+        Query query = Query.query(Criteria.where("_id").is(verification.getChecker())
+            .and("verificationCode").is(verification.getVerificationCode()));
+        return mongoTemplate.findAndRemove(query, VerificationDocument.class)
+            .map(document -> {
+                if (document.getCreatedDatetime() != null && !document.getCreatedDatetime().isAfter(expiredBefore())) {
+                    expired.increment();
+                    return Boolean.FALSE;
+                }
+                return Boolean.TRUE;
+            })
+            .defaultIfEmpty(Boolean.FALSE)
+            .doOnNext(consumed -> log.info("[consume] Verification : {} consumed: {}", verification.getChecker(), consumed));
+    }
+
+    private LocalDateTime expiredBefore() {
+        return LocalDateTime.now().minus(lifetime);
+    }
 
+    private boolean isIndexOptionsConflict(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoCommandException) {
+                return ((MongoCommandException) cause).getErrorCode() == INDEX_OPTIONS_CONFLICT;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,101 @@
+package com.skmwizard.user.services.implementations;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 만료 시각 관리를 위한 hashed timing wheel
+ * <pre>
+ * - 만료 시각을 tickMillis 단위 tick 으로 바꾸어 (tick % wheelSize) 버킷에 넣는다. 등록과 삭제 모두 O(1) 이다.
+ * - advance 는 지나간 tick 의 버킷만 훑어서 만료 tick 이 지난 키를 onExpire 로 전달한다.
+ *   한 바퀴 이상 남은 키는 그대로 두고 다음 바퀴에 다시 확인한다.
+ * - 처리 중인 tick 에 등록된 키는 한 바퀴 늦게 만료될 수 있으므로, 사용하는 쪽에서 조회 시 만료 시각을 다시 확인한다.
+ * - schedule 은 여러 스레드에서 호출할 수 있고, advance 는 한 스레드에서만 호출한다.
+ * </pre>
+ */
+final class HashedTimingWheel<K> {
+    private final long tickMillis;
+    private final List<Queue<Timeout<K>>> buckets;
+    private final int mask;
+    private final Consumer<K> onExpire;
+    private volatile long nextTick;
+
+    HashedTimingWheel(long tickMillis, int wheelSize, long nowMillis, Consumer<K> onExpire) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.buckets = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            this.buckets.add(new ConcurrentLinkedQueue<>());
+        }
+        this.mask = size - 1;
+        this.onExpire = onExpire;
+        this.nextTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * @param key            만료시킬 키
+     * @param deadlineMillis 만료 시각 (epoch millis)
+     */
+    void schedule(K key, long deadlineMillis) {
+        long deadlineTick = Math.max(ceilDiv(deadlineMillis, tickMillis), nextTick);
+        buckets.get((int) (deadlineTick & mask)).add(new Timeout<>(key, deadlineTick));
+    }
+
+    /**
+     * nowMillis 까지 지나간 tick 을 처리
+     *
+     * @return 만료된 키 수
+     */
+    int advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        long from = nextTick;
+        if (nowTick < from) {
+            return 0;
+        }
+        // 오래 멈췄다가 호출되어도 버킷은 한 바퀴만 훑는다.
+        long to = Math.min(nowTick, from + mask);
+        int expired = 0;
+        for (long tick = from; tick <= to; tick++) {
+            Iterator<Timeout<K>> iterator = buckets.get((int) (tick & mask)).iterator();
+            while (iterator.hasNext()) {
+                Timeout<K> timeout = iterator.next();
+                if (timeout.deadlineTick <= nowTick) {
+                    iterator.remove();
+                    onExpire.accept(timeout.key);
+                    expired++;
+                }
+            }
+        }
+        nextTick = nowTick + 1;
+        return expired;
+    }
+
+    int size() {
+        int size = 0;
+        for (Queue<Timeout<K>> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+    private static final class Timeout<K> {
+        private final K key;
+        private final long deadlineTick;
+
+        private Timeout(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.skmwizard.user.services.implementations;
+
+import com.skmwizard.user.services.Verification;
+import com.skmwizard.user.services.VerificationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.rmi.NoSuchObjectException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 메모리에 인증번호를 보관하는 VerificationService (verification.store=memory)
+ * <pre>
+ * - checker 해시로 나눈 shards 개의 맵에 보관하고, 만료는 HashedTimingWheel 이 tick 주기로 정리한다.
+ * - 조회 시에도 만료 시각을 확인하므로, 정리 주기와 관계없이 만료된 인증번호는 거부한다.
+ * - snapshotFile 을 지정하면 snapshotInterval 주기와 종료 시 파일로 저장하고, 기동 시 만료되지 않은 인증번호를 다시 읽는다.
+ * - 인스턴스마다 따로 보관하므로, 발급과 확인이 같은 인스턴스로 가도록 라우팅하거나 단일 인스턴스로 운영할 때 사용한다.
+ * </pre>
+ */
+@Service
+@ConditionalOnProperty(name = "verification.store", havingValue = "memory")
+@Slf4j
+@Validated
+class InMemoryVerificationService implements VerificationService {
+    private final List<Map<String, Code>> shards;
+    private final HashedTimingWheel<String> wheel;
+    private final Duration lifetime;
+    private final Duration tick;
+    private final Path snapshotFile;
+    private final Duration snapshotInterval;
+    private final Counter expired;
+    private volatile boolean dirty;
+    private Disposable ticker;
+    private Disposable snapshot;
+
+    InMemoryVerificationService(
+        MeterRegistry meterRegistry,
+        @Value("${verification.lifetime:3m}") Duration lifetime,
+        @Value("${verification.memory.shards:16}") int shards,
+        @Value("${verification.memory.tick:1s}") Duration tick,
+        @Value("${verification.memory.wheelSize:512}") int wheelSize,
+        @Value("${verification.memory.snapshotFile:}") String snapshotFile,
+        @Value("${verification.memory.snapshotInterval:10s}") Duration snapshotInterval) {
+        this.shards = new ArrayList<>(shards);
+        for (int index = 0; index < shards; index++) {
+            this.shards.add(new ConcurrentHashMap<>());
+        }
+        this.lifetime = lifetime;
+        this.tick = tick;
+        this.wheel = new HashedTimingWheel<>(tick.toMillis(), wheelSize, System.currentTimeMillis(), this::expire);
+        this.snapshotFile = snapshotFile.isEmpty() ? null : Paths.get(snapshotFile);
+        this.snapshotInterval = snapshotInterval;
+        Gauge.builder("verification.codes.active", this, InMemoryVerificationService::size)
+            .description("The number of verification codes that have not expired")
+            .register(meterRegistry);
+        this.expired = Counter.builder("verification.codes.expired")
+            .description("The number of checks rejected because the code had expired")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        load();
+        this.ticker = Flux.interval(tick, tick, Schedulers.single())
+            .doOnNext(ignored -> wheel.advance(System.currentTimeMillis()))
+            .subscribe();
+        if (snapshotFile != null) {
+            this.snapshot = Flux.interval(snapshotInterval, snapshotInterval, Schedulers.boundedElastic())
+                .doOnNext(ignored -> save())
+                .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        if (snapshot != null) {
+            snapshot.dispose();
+            save();
+        }
+    }
+
+    @Override
+    public Mono<Verification> add(Verification verification) {
+        return Mono.fromSupplier(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            put(verification.getChecker(), new Code(verification.getVerificationCode(), now, System.currentTimeMillis() + lifetime.toMillis()));
+            log.info("[add] Verification : {} saved", verification.getChecker());
+            return Verification.builder()
+                .checker(verification.getChecker())
+                .verificationCode(verification.getVerificationCode())
+                .createdDatetime(now)
+                .build();
+        });
+    }
+
+    @Override
+    public Mono<Boolean> exists(Verification verification) {
+        return Mono.defer(() -> {
+            Code code = shard(verification.getChecker()).get(verification.getChecker());
+            if (code == null || !code.verificationCode.equals(verification.getVerificationCode())) {
+                return Mono.error(new NoSuchObjectException("인증번호를 확인해주세요."));
+            }
+            if (code.isExpired(System.currentTimeMillis())) {
+                expired.increment();
+                return Mono.error(new NoSuchObjectException("인증번호가 만료되었습니다."));
+            }
+            log.info("[exists] Verification : {} exist.", verification.getChecker());
+            return Mono.just(Boolean.TRUE);
+        });
+    }
+
+    @Override
+    public Mono<Void> remove(Verification verification) {
+        return Mono.fromRunnable(() -> {
+            if (shard(verification.getChecker()).remove(verification.getChecker()) != null) {
+                dirty = true;
+            }
+            log.info("[remove] Verification: {} removed.", verification.getChecker());
+        });
+    }
+
+    @Override
+    public Mono<Boolean> consume(Verification verification) {
+        return Mono.fromSupplier(() -> {
+            AtomicReference<Code> consumed = new AtomicReference<>();
+            shard(verification.getChecker()).computeIfPresent(verification.getChecker(), (checker, code) -> {
+                if (!code.verificationCode.equals(verification.getVerificationCode())) {
+                    return code;
+                }
+                consumed.set(code);
+                return null;
+            });
+            Code code = consumed.get();
+            if (code == null) {
+                return Boolean.FALSE;
+            }
+            dirty = true;
+            if (code.isExpired(System.currentTimeMillis())) {
+                expired.increment();
+                return Boolean.FALSE;
+            }
+            log.info("[consume] Verification : {} consumed.", verification.getChecker());
+            return Boolean.TRUE;
+        });
+    }
+
+    int size() {
+        int size = 0;
+        for (Map<String, Code> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private Map<String, Code> shard(String checker) {
+        return shards.get(Math.floorMod(checker.hashCode(), shards.size()));
+    }
+
+    private void put(String checker, Code code) {
+        shard(checker).put(checker, code);
+        wheel.schedule(checker, code.deadlineMillis);
+        dirty = true;
+    }
+
+    /**
+     * 같은 checker 로 다시 발급된 인증번호는 지우지 않는다.
+     */
+    private void expire(String checker) {
+        long now = System.currentTimeMillis();
+        if (shard(checker).computeIfPresent(checker, (key, code) -> code.isExpired(now) ? null : code) == null) {
+            dirty = true;
+        }
+    }
+
+    private void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Properties properties = new Properties();
+        long now = System.currentTimeMillis();
+        for (Map<String, Code> shard : shards) {
+            shard.forEach((checker, code) -> {
+                if (!code.isExpired(now)) {
+                    properties.setProperty(checker, code.verificationCode + "," + toEpochMillis(code.createdDatetime) + "," + code.deadlineMillis);
+                }
+            });
+        }
+        Path absolute = snapshotFile.toAbsolutePath();
+        try {
+            if (absolute.getParent() != null) {
+                Files.createDirectories(absolute.getParent());
+            }
+            Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                properties.store(outputStream, "verification codes (checker=code,createdEpochMillis,deadlineEpochMillis)");
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            dirty = true;
+            log.warn("[save] verification snapshot could not be written to {}", absolute, exception);
+        }
+    }
+
+    private void load() {
+        if (snapshotFile == null || !Files.isReadable(snapshotFile)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(snapshotFile)) {
+            properties.load(inputStream);
+        } catch (IOException exception) {
+            log.warn("[load] verification snapshot could not be read from {}", snapshotFile.toAbsolutePath(), exception);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        properties.stringPropertyNames().forEach(checker -> {
+            String[] values = properties.getProperty(checker).split(",");
+            try {
+                Code code = new Code(values[0], toLocalDateTime(Long.parseLong(values[1])), Long.parseLong(values[2]));
+                if (!code.isExpired(now)) {
+                    put(checker, code);
+                }
+            } catch (RuntimeException exception) {
+                log.warn("[load] invalid verification snapshot entry: {}", checker);
+            }
+        });
+        log.info("[load] {} verification codes loaded.", size());
+    }
+
+    private static long toEpochMillis(LocalDateTime datetime) {
+        return datetime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static final class Code {
+        private final String verificationCode;
+        private final LocalDateTime createdDatetime;
+        private final long deadlineMillis;
+
+        private Code(String verificationCode, LocalDateTime createdDatetime, long deadlineMillis) {
+            this.verificationCode = verificationCode;
+            this.createdDatetime = createdDatetime;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        private boolean isExpired(long nowMillis) {
+            return nowMillis >= deadlineMillis;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.skmwizard.user.services.implementations;
+
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mongo 연결 풀과 조회 경로 설정
+ * <pre>
+ * - reactiveMongoTemplate (@Primary, 리포지토리 포함): primary 에서 읽고 쓴다. 쓰기와 쓴 직후 다시 읽는 조회(로그인, /me, 수정)에 사용한다.
+ * - {@code @Qualifier(MongoConfiguration.SECONDARY)}: mongo.read.preference(기본 secondaryPreferred) 로 읽는다.
+ *   mongo.read.maxStaleness 보다 뒤처진 secondary 는 고르지 않는다. 목록, 건수, 검색처럼 조금 늦어도 되는 무거운 조회에 사용한다.
+ * - 연결 풀은 mongo.pool.* 로 조정한다. 연결 문자열의 풀 옵션보다 우선한다.
+ *   드라이버 4.0 에는 대기열 길이 제한이 없으므로 대기는 maxWaitTime 으로 제한한다.
+ * - 풀 상태는 mongodb.driver.pool.{size,checkedout,waitqueuesize} 로 집계한다.
+ * </pre>
+ */
+@Configuration
+public class MongoConfiguration {
+    public static final String SECONDARY = "secondaryMongoTemplate";
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoConnectionPoolCustomizer(
+        MeterRegistry meterRegistry,
+        @Value("${mongo.pool.maxSize:100}") int maxSize,
+        @Value("${mongo.pool.minSize:0}") int minSize,
+        @Value("${mongo.pool.maxWaitTime:2m}") Duration maxWaitTime,
+        @Value("${mongo.pool.maxConnectionIdleTime:0s}") Duration maxConnectionIdleTime) {
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool
+            .maxSize(maxSize)
+            .minSize(minSize)
+            .maxWaitTime(maxWaitTime.toMillis(), TimeUnit.MILLISECONDS)
+            .maxConnectionIdleTime(maxConnectionIdleTime.toMillis(), TimeUnit.MILLISECONDS)
+            .addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry)));
+    }
+
+    @Bean
+    @Primary
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory databaseFactory, MongoConverter converter) {
+        return new ReactiveMongoTemplate(databaseFactory, converter);
+    }
+
+    @Bean(SECONDARY)
+    public ReactiveMongoTemplate secondaryMongoTemplate(
+        ReactiveMongoDatabaseFactory databaseFactory,
+        MongoConverter converter,
+        @Value("${mongo.read.preference:secondaryPreferred}") String readPreference,
+        @Value("${mongo.read.maxStaleness:90s}") Duration maxStaleness) {
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(databaseFactory, converter);
+        template.setReadPreference("primary".equals(readPreference)
+            ? ReadPreference.primary()
+            : ReadPreference.valueOf(readPreference, Collections.emptyList(), maxStaleness.getSeconds(), TimeUnit.SECONDS));
+        return template;
+    }
+}
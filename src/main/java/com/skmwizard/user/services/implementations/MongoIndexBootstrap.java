@@ -0,0 +1,142 @@
+package com.skmwizard.user.services.implementations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 도큐먼트에 선언한 인덱스 생성과 리포지토리 쿼리 메소드 인덱스 검사
+ * <pre>
+ * - 기동 시 리포지토리 쿼리 메소드(findBy..., existsBy...)의 조건 필드가 선언된 인덱스의 앞부분과 일치하는지 검사한다.
+ *   mongo.index.check 가 warn 이면 로그만 남기고, fail 이면 기동을 중단한다.
+ * - 인덱스 생성(ensureIndex)은 이미 있으면 아무 일도 하지 않으므로, 기동이 끝난 뒤 백그라운드에서 실행하여 준비 상태를 늦추지 않는다.
+ * </pre>
+ */
+@Component
+@Slf4j
+class MongoIndexBootstrap {
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext;
+    private final ListableBeanFactory beanFactory;
+    private final String check;
+    private final boolean autoCreate;
+
+    MongoIndexBootstrap(
+        ReactiveMongoTemplate mongoTemplate,
+        ListableBeanFactory beanFactory,
+        @Value("${mongo.index.check:warn}") String check,
+        @Value("${mongo.index.autoCreate:true}") boolean autoCreate) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mongoTemplate.getConverter().getMappingContext();
+        this.beanFactory = beanFactory;
+        this.check = check;
+        this.autoCreate = autoCreate;
+    }
+
+    @PostConstruct
+    public void verify() {
+        if ("off".equalsIgnoreCase(check)) {
+            return;
+        }
+        List<String> unsupported = unsupportedQueryMethods();
+        if (unsupported.isEmpty()) {
+            return;
+        }
+        unsupported.forEach(method -> log.warn("[verify] query method has no supporting index: {}", method));
+        if ("fail".equalsIgnoreCase(check)) {
+            throw new IllegalStateException("Query methods without supporting index: " + unsupported);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        if (!autoCreate) {
+            return;
+        }
+        Flux.fromIterable(declaredIndexes(new Repositories(beanFactory)).entrySet())
+            .concatMap(entry -> Flux.fromIterable(entry.getValue())
+                .concatMap(index -> mongoTemplate.indexOps(entry.getKey()).ensureIndex(index)
+                    .doOnNext(name -> log.info("[createIndexes] {}.{} ensured.", mongoTemplate.getCollectionName(entry.getKey()), name))
+                    .onErrorResume(throwable -> {
+                        log.error("[createIndexes] {} index {} failed.", entry.getKey().getSimpleName(), index.getIndexKeys(), throwable);
+                        return Mono.empty();
+                    })))
+            .subscribe();
+    }
+
+    /**
+     * 리포지토리 쿼리 메소드 중 조건 필드를 앞부분으로 갖는 인덱스가 없는 메소드
+     */
+    List<String> unsupportedQueryMethods() {
+        Repositories repositories = new Repositories(beanFactory);
+        Map<Class<?>, List<MongoPersistentEntityIndexResolver.IndexDefinitionHolder>> indexes = declaredIndexes(repositories);
+        List<String> unsupported = new ArrayList<>();
+        for (Class<?> domainType : repositories) {
+            MongoPersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(domainType);
+            List<MongoPersistentEntityIndexResolver.IndexDefinitionHolder> definitions = indexes.getOrDefault(domainType, new ArrayList<>());
+            repositories.getRepositoryInformationFor(domainType).ifPresent(information -> {
+                for (Method method : information.getQueryMethods()) {
+                    Set<String> fields = new HashSet<>();
+                    for (Part part : new PartTree(method.getName(), domainType).getParts()) {
+                        fields.add(entity.getRequiredPersistentProperty(part.getProperty().getSegment()).getFieldName());
+                    }
+                    if (!fields.isEmpty() && !fields.contains("_id") && definitions.stream().noneMatch(index -> isPrefix(fields, index.getIndexKeys()))) {
+                        unsupported.add(information.getRepositoryInterface().getSimpleName() + "." + method.getName() + fields);
+                    }
+                }
+            });
+        }
+        return unsupported;
+    }
+
+    private Map<Class<?>, List<MongoPersistentEntityIndexResolver.IndexDefinitionHolder>> declaredIndexes(Repositories repositories) {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        Map<Class<?>, List<MongoPersistentEntityIndexResolver.IndexDefinitionHolder>> indexes = new LinkedHashMap<>();
+        for (Class<?> domainType : repositories) {
+            List<MongoPersistentEntityIndexResolver.IndexDefinitionHolder> definitions =
+                resolver.resolveIndexForEntity(mappingContext.getRequiredPersistentEntity(domainType));
+            indexes.put(domainType, definitions);
+        }
+        return indexes;
+    }
+
+    /**
+     * 인덱스 키의 앞 fields.size() 개가 조건 필드와 같은지 (순서 무관)
+     */
+    private static boolean isPrefix(Set<String> fields, Document keys) {
+        if (keys.size() < fields.size()) {
+            return false;
+        }
+        Set<String> prefix = new HashSet<>();
+        for (String key : keys.keySet()) {
+            if (prefix.size() == fields.size()) {
+                break;
+            }
+            prefix.add(key);
+        }
+        return prefix.equals(fields);
+    }
+}
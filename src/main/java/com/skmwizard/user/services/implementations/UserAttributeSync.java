@@ -0,0 +1,150 @@
+package com.skmwizard.user.services.implementations;
+
+import com.skmwizard.user.clouds.CloudUserManager;
+import com.skmwizard.user.services.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.rmi.NoSuchObjectException;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 변경된 사용자 속성만 저장소에 반영
+ * <pre>
+ * - 이름이나 휴대폰 번호가 요청과 다른 경우에만 바꾸는 조건부 findAndModify($set) 한 번으로 DB 에 반영하고, 바뀌기 전 문서를 받는다.
+ *   읽고 나서 쓰지 않으므로 동시 수정은 DB 에서 차례로 적용되고, 나중 요청이 이긴다.
+ * - DB 에 반영된 뒤 이름이 바뀐 경우에만 CloudUserManager.edit 을 호출한다. (Cognito 는 name 만 저장)
+ *   Cognito 수정이 실패하면, 그 사이 다른 수정이 없었을 때(version 이 같을 때) DB 의 이름을 되돌리고 실패를 전달한다.
+ * - 요청에 version 이 있으면 저장된 버전이 같을 때만 바꾼다. 다르면 OptimisticLockingFailureException 을 낸다. (409)
+ * - 바뀐 속성이 없으면 DB 에 쓰지 않는다. 이때만 사용자가 있는지, 버전이 맞는지 한 번 더 확인한다.
+ * - 삭제 대기 중인 사용자는 없는 사용자로 보고 NoSuchObjectException 을 낸다.
+ * 생략한 호출 수는 user.sync.skipped{backend=cloud|database} 로 집계한다.
+ * </pre>
+ */
+@Component
+@Slf4j
+class UserAttributeSync {
+    private final CloudUserManager cloudUserManager;
+    private final UserRepository userRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Counter cloudSkipped;
+    private final Counter databaseSkipped;
+
+    UserAttributeSync(CloudUserManager cloudUserManager,
+                      UserRepository userRepository,
+                      ReactiveMongoTemplate mongoTemplate,
+                      MeterRegistry meterRegistry) {
+        this.cloudUserManager = cloudUserManager;
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.cloudSkipped = Counter.builder("user.sync.skipped").tag("backend", "cloud").register(meterRegistry);
+        this.databaseSkipped = Counter.builder("user.sync.skipped").tag("backend", "database").register(meterRegistry);
+    }
+
+    /**
+     * 사용자 이름, 휴대폰 번호 동기화
+     *
+     * @param updater  수정하는 사용자 아이디
+     * @param username 수정할 사용자 아이디
+     * @param user     수정할 사용자 정보, version 이 있으면 그 버전일 때만 수정한다.
+     * @return 동기화된 사용자 문서
+     */
+    Mono<UserDocument> sync(String updater, String username, User user) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria criteria = Criteria.where("_id").is(username)
+            .and("deletionRequestedDatetime").exists(false);
+        if (user.getVersion() != null) {
+            criteria = criteria.and("version").is(user.getVersion());
+        }
+        Query query = Query.query(criteria
+            .orOperator(Criteria.where("name").ne(user.getName()), Criteria.where("phoneNumber").ne(user.getPhoneNumber())));
+        Update update = new Update()
+            .set("name", user.getName())
+            .set("phoneNumber", user.getPhoneNumber())
+            .set("searchTokens", UserSearchTokens.of(username, user.getName(), user.getPhoneNumber()))
+            .set("updatedDatetime", now)
+            .set("updater", updater)
+            .inc("version", 1);
+        return mongoTemplate.findAndModify(query, update, UserDocument.class)
+            .flatMap(previous -> {
+                UserDocument updated = applied(previous, user, updater, now);
+                if (Objects.equals(previous.getName(), user.getName())) {
+                    cloudSkipped.increment();
+                    return Mono.just(updated);
+                }
+                return cloudUserManager.edit(User.builder().email(username).name(user.getName()).build())
+                    .thenReturn(updated)
+                    .onErrorResume(throwable -> revert(previous, updated).then(Mono.error(throwable)));
+            })
+            .switchIfEmpty(Mono.defer(() -> {
+                // 바뀐 속성이 없거나, 사용자가 없거나 삭제 대기 중이거나, 버전이 다른 경우
+                return userRepository.findById(username)
+                    .filter(document -> document.getDeletionRequestedDatetime() == null)
+                    .switchIfEmpty(Mono.error(new NoSuchObjectException(username)))
+                    .flatMap(document -> {
+                        if (user.getVersion() != null && !user.getVersion().equals(document.getVersion())) {
+                            log.info("[sync] username: {} expected version: {} but was: {}", username, user.getVersion(), document.getVersion());
+                            return Mono.error(new OptimisticLockingFailureException(username));
+                        }
+                        log.debug("[sync] username: {} unchanged.", username);
+                        cloudSkipped.increment();
+                        databaseSkipped.increment();
+                        return Mono.just(document);
+                    });
+            }));
+    }
+
+    /**
+     * Cognito 수정에 실패한 경우 DB 의 이름, 휴대폰 번호를 되돌린다. 그 사이 다른 수정이 있었으면 그 수정을 남긴다.
+     */
+    private Mono<Void> revert(UserDocument previous, UserDocument updated) {
+        String username = previous.getEmail();
+        Query query = Query.query(Criteria.where("_id").is(username).and("version").is(updated.getVersion()));
+        Update update = new Update()
+            .set("name", previous.getName())
+            .set("phoneNumber", previous.getPhoneNumber())
+            .set("searchTokens", UserSearchTokens.of(username, previous.getName(), previous.getPhoneNumber()))
+            .set("updatedDatetime", previous.getUpdatedDatetime())
+            .set("updater", previous.getUpdater())
+            .inc("version", 1);
+        return mongoTemplate.updateFirst(query, update, UserDocument.class)
+            .doOnNext(result -> {
+                if (result.getModifiedCount() == 0) {
+                    log.warn("[sync] username: {} Cognito update failed and the user changed again, not reverted.", username);
+                } else {
+                    log.info("[sync] username: {} reverted after Cognito update failed.", username);
+                }
+            })
+            .onErrorResume(throwable -> {
+                log.error("[sync] username: {} Cognito update failed and revert failed.", username, throwable);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    /**
+     * 바뀌기 전 문서에 이번 수정을 적용한 문서
+     */
+    private static UserDocument applied(UserDocument previous, User user, String updater, LocalDateTime now) {
+        UserDocument updated = new UserDocument();
+        BeanUtils.copyProperties(previous, updated);
+        updated.setName(user.getName());
+        updated.setPhoneNumber(user.getPhoneNumber());
+        updated.setUpdatedDatetime(now);
+        updated.setUpdater(updater);
+        updated.setVersion(Optional.ofNullable(previous.getVersion()).orElse(0L) + 1);
+        updated.updateSearchTokens();
+        return updated;
+    }
+}
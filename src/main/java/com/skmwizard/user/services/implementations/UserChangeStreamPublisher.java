@@ -0,0 +1,296 @@
+package com.skmwizard.user.services.implementations;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.skmwizard.user.messages.MessagePublisher;
+import com.skmwizard.user.messages.PublishableEvent;
+import com.skmwizard.user.services.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * user 컬렉션 변경 스트림으로 사용자 이벤트 발행
+ * <pre>
+ * - 커밋된 insert, update/replace, delete 를 각각 USER_CREATED, USER_UPDATED, USER_DELETED 로 발행한다.
+ *   내부 관리 필드(searchTokens, deletionRetryDatetime, deletionAttempts)만 바뀐 update 는 발행하지 않는다.
+ * - 한 인스턴스만 발행하도록 user_change_stream 문서에 leaseTimeout 동안 유효한 lease 를 잡고, heartbeat 주기로 갱신한다.
+ *   lease 를 잃으면 발행을 멈추고, 다른 인스턴스가 이어받는다.
+ * - 브로커가 받았다고 확인한 이벤트만 발행한 것으로 보고, 그때 resume token 과 발행 수를 올린다.
+ * - 발행한 마지막 이벤트의 resume token 을 heartbeat 마다 같은 문서에 저장하고, 다시 시작하면 그 다음 이벤트부터 발행한다.
+ *   저장하기 전에 멈추면 마지막 heartbeat 이후 이벤트를 다시 발행하므로, 구독하는 쪽은 같은 이벤트를 두 번 받을 수 있다.
+ * - 발행에 실패하면 변경 스트림을 닫고 마지막으로 발행한 이벤트 다음부터 다시 연다. (retryBackoff 부터 최대 1분)
+ *   저장한 resume token 이 oplog 에서 밀려났으면 경고를 남기고 현재 시점부터 발행한다.
+ * - 변경 스트림은 replica set 또는 sharded cluster 에서만 동작한다.
+ * </pre>
+ */
+@Component
+@Slf4j
+class UserChangeStreamPublisher {
+    private static final String STATE_COLLECTION = "user_change_stream";
+    private static final String STATE_ID = "user";
+    /**
+     * MongoDB ChangeStreamHistoryLost, resume token 이 oplog 에서 밀려남
+     */
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final Set<String> INTERNAL_FIELDS = new HashSet<>(Arrays.asList("searchTokens", "deletionRetryDatetime", "deletionAttempts"));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MessagePublisher messagePublisher;
+    private final UserConverter userConverter;
+    private final boolean enabled;
+    private final Duration heartbeat;
+    private final Duration leaseTimeout;
+    private final Duration retryBackoff;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<PublishableEvent, Counter> published = new EnumMap<>(PublishableEvent.class);
+    /**
+     * LocalDateTime 은 ISO-8601 문자열(2020-07-28T10:15:30)로 보낸다.
+     */
+    private final Gson gson = new GsonBuilder()
+        .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter().nullSafe())
+        .create();
+    /**
+     * 마지막으로 발행한 이벤트의 resume token
+     */
+    private final AtomicReference<BsonValue> resumeToken = new AtomicReference<>();
+    private Disposable schedule;
+    private volatile Disposable tailer;
+
+    UserChangeStreamPublisher(
+        ReactiveMongoTemplate mongoTemplate,
+        MessagePublisher messagePublisher,
+        UserConverter userConverter,
+        MeterRegistry meterRegistry,
+        @Value("${user.events.enabled:true}") boolean enabled,
+        @Value("${user.events.heartbeat:5s}") Duration heartbeat,
+        @Value("${user.events.leaseTimeout:30s}") Duration leaseTimeout,
+        @Value("${user.events.retryBackoff:1s}") Duration retryBackoff) {
+        this.mongoTemplate = mongoTemplate;
+        this.messagePublisher = messagePublisher;
+        this.userConverter = userConverter;
+        this.enabled = enabled;
+        this.heartbeat = heartbeat;
+        this.leaseTimeout = leaseTimeout;
+        this.retryBackoff = retryBackoff;
+        for (PublishableEvent event : PublishableEvent.values()) {
+            published.put(event, Counter.builder("user.events.published").tag("event", event.name()).register(meterRegistry));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        this.schedule = Flux.interval(Duration.ZERO, heartbeat)
+            .onBackpressureDrop()
+            .concatMap(tick -> renewLease()
+                .doOnNext(this::onLease)
+                .onErrorResume(throwable -> {
+                    log.warn("[start] user change stream lease could not be renewed.", throwable);
+                    return Mono.empty();
+                }))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+        if (tailer != null) {
+            tailer.dispose();
+            tailer = null;
+            // 다른 인스턴스가 바로 이어받도록 마지막 위치를 저장하고 lease 를 놓는다.
+            Update update = new Update().set("leaseUntil", LocalDateTime.now());
+            Optional.ofNullable(resumeToken.get()).ifPresent(token -> update.set("resumeToken", toDocument(token)));
+            mongoTemplate.updateFirst(ownedState(), update, STATE_COLLECTION)
+                .block(Duration.ofSeconds(5));
+        }
+    }
+
+    /**
+     * lease 를 잡거나 갱신하고, 가지고 있으면 마지막으로 발행한 위치를 함께 저장한다.
+     *
+     * @return lease 를 가진 경우 상태 문서, 다른 인스턴스가 가지고 있으면 empty
+     */
+    private Mono<Document> renewLease() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(STATE_ID)
+            .orOperator(Criteria.where("owner").is(instanceId), Criteria.where("leaseUntil").lt(now)));
+        Update update = new Update()
+            .set("owner", instanceId)
+            .set("leaseUntil", now.plus(leaseTimeout));
+        if (tailer != null) {
+            Optional.ofNullable(resumeToken.get()).ifPresent(token -> update.set("resumeToken", toDocument(token)));
+        }
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, STATE_COLLECTION)
+            // 다른 인스턴스가 lease 를 가지고 있으면 upsert 가 _id 중복으로 실패한다.
+            .onErrorResume(DuplicateKeyException.class, throwable -> Mono.empty())
+            .switchIfEmpty(Mono.fromRunnable(this::release));
+    }
+
+    private void onLease(Document state) {
+        if (tailer != null && !tailer.isDisposed()) {
+            return;
+        }
+        Optional.ofNullable(state.get("resumeToken", Document.class))
+            .map(token -> BsonDocument.parse(token.toJson()))
+            .ifPresent(resumeToken::set);
+        log.info("[onLease] instance: {} publishes user events, resume token: {}", instanceId, resumeToken.get());
+        this.tailer = Flux.defer(this::tail)
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, retryBackoff)
+                .maxBackoff(Duration.ofMinutes(1))
+                .doBeforeRetry(signal -> log.warn("[tail] user change stream failed, retrying.", signal.failure())))
+            .subscribe();
+    }
+
+    private void release() {
+        if (tailer != null) {
+            log.info("[release] instance: {} lost the user events lease.", instanceId);
+            tailer.dispose();
+            tailer = null;
+        }
+    }
+
+    private Flux<BsonValue> tail() {
+        ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+            .returnFullDocumentOnUpdate();
+        Optional.ofNullable(resumeToken.get()).ifPresent(options::resumeAfter);
+        return publishAll(mongoTemplate.changeStream(null, mongoTemplate.getCollectionName(UserDocument.class), options.build(), UserDocument.class))
+            .onErrorResume(this::isHistoryLost, throwable -> {
+                log.error("[tail] resume token {} is no longer in the oplog, publishing from now on. Events in between were not published.", resumeToken.get());
+                resumeToken.set(null);
+                return Flux.error(throwable);
+            });
+    }
+
+    /**
+     * 이벤트를 차례로 발행하고, 발행이 확인된 이벤트의 resume token 으로 위치를 옮긴다.
+     * <pre>발행에 실패하면 그 이벤트의 위치로 옮기지 않고 에러로 끝나므로, 다시 열면 그 이벤트부터 발행한다.</pre>
+     */
+    Flux<BsonValue> publishAll(Flux<ChangeStreamEvent<UserDocument>> events) {
+        return events
+            .concatMap(event -> publish(event).thenReturn(event.getResumeToken()))
+            .doOnNext(resumeToken::set);
+    }
+
+    /**
+     * 마지막으로 발행한 이벤트의 resume token
+     */
+    BsonValue resumeToken() {
+        return resumeToken.get();
+    }
+
+    private Mono<Void> publish(ChangeStreamEvent<UserDocument> event) {
+        ChangeStreamDocument<Document> raw = event.getRaw();
+        OperationType operationType = event.getOperationType();
+        if (raw == null || operationType == null) {
+            return Mono.empty();
+        }
+        String username = raw.getDocumentKey() == null ? null : raw.getDocumentKey().getString("_id").getValue();
+        switch (operationType) {
+            case INSERT:
+                return publish(PublishableEvent.USER_CREATED, null, event.getBody());
+            case UPDATE:
+                if (isInternal(raw.getUpdateDescription())) {
+                    return Mono.empty();
+                }
+                return publish(PublishableEvent.USER_UPDATED, username, event.getBody());
+            case REPLACE:
+                return publish(PublishableEvent.USER_UPDATED, username, event.getBody());
+            case DELETE:
+                return publish(PublishableEvent.USER_DELETED, username, null);
+            default:
+                return Mono.empty();
+        }
+    }
+
+    private Mono<Void> publish(PublishableEvent event, String username, UserDocument document) {
+        // 갱신 후 바로 삭제되어 fullDocument 가 없으면 아이디만 보낸다.
+        User user = document == null ? User.builder().email(username).build() : userConverter.converts(document);
+        return messagePublisher.publish(event, username, gson.toJson(user))
+            .doOnSuccess(aVoid -> published.get(event).increment());
+    }
+
+    private static boolean isInternal(UpdateDescription description) {
+        if (description == null) {
+            return false;
+        }
+        Set<String> fields = new HashSet<>();
+        Optional.ofNullable(description.getUpdatedFields()).ifPresent(updated -> fields.addAll(updated.keySet()));
+        Optional.ofNullable(description.getRemovedFields()).ifPresent(fields::addAll);
+        // version, updatedDatetime 없이 내부 필드만 바뀐 경우
+        return !fields.isEmpty() && INTERNAL_FIELDS.containsAll(fields);
+    }
+
+    private Query ownedState() {
+        return Query.query(Criteria.where("_id").is(STATE_ID).and("owner").is(instanceId));
+    }
+
+    private boolean isHistoryLost(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoCommandException) {
+                return ((MongoCommandException) cause).getErrorCode() == CHANGE_STREAM_HISTORY_LOST;
+            }
+        }
+        return false;
+    }
+
+    private static Document toDocument(BsonValue token) {
+        return Document.parse(token.asDocument().toJson());
+    }
+
+    private static final class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
+        @Override
+        public void write(JsonWriter out, LocalDateTime value) throws IOException {
+            out.value(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        }
+
+        @Override
+        public LocalDateTime read(JsonReader in) throws IOException {
+            return LocalDateTime.parse(in.nextString(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+    }
+}
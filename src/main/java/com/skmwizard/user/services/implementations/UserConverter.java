@@ -15,6 +15,8 @@ public class UserConverter {
             .picture(user.getPicture())
             .name(user.getName())
             .phoneNumber(user.getPhoneNumber())
+            .createdDatetime(user.getCreatedDatetime())
+            .version(user.getVersion())
             .build();
     }
 
@@ -0,0 +1,154 @@
+package com.skmwizard.user.services.implementations;
+
+import com.skmwizard.user.clouds.CloudUserManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * 탈퇴 요청한 사용자 삭제 작업
+ * <pre>
+ * 1. pollInterval 주기로 삭제 시도 시각이 지난 사용자를 batchSize 개씩 가져온다.
+ * 2. 사용자마다 다음 시도 시각을 leaseTimeout 뒤로 미뤄 선점한다. (여러 인스턴스가 같은 사용자를 처리하지 않도록)
+ * 3. 최대 concurrency 개까지 동시에 Cognito 사용자, user, user_agree, verification 문서를 삭제한다. (USER_DELETED 는 UserChangeStreamPublisher 가 발행)
+ * 4. 실패하면 initialBackoff 부터 두 배씩, 최대 maxBackoff 뒤에 다시 시도한다.
+ * </pre>
+ */
+@Component
+@Slf4j
+class UserDeletionWorker {
+    private final CloudUserManager cloudUserManager;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final UserProfileCache userProfileCache;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration leaseTimeout;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Counter deleted;
+    private final Counter failed;
+    private Disposable schedule;
+
+    UserDeletionWorker(
+        CloudUserManager cloudUserManager,
+        ReactiveMongoTemplate mongoTemplate,
+        UserProfileCache userProfileCache,
+        MeterRegistry meterRegistry,
+        @Value("${user.deletion.pollInterval:5s}") Duration pollInterval,
+        @Value("${user.deletion.batchSize:100}") int batchSize,
+        @Value("${user.deletion.concurrency:4}") int concurrency,
+        @Value("${user.deletion.leaseTimeout:1m}") Duration leaseTimeout,
+        @Value("${user.deletion.initialBackoff:10s}") Duration initialBackoff,
+        @Value("${user.deletion.maxBackoff:1h}") Duration maxBackoff) {
+        this.cloudUserManager = cloudUserManager;
+        this.mongoTemplate = mongoTemplate;
+        this.userProfileCache = userProfileCache;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.leaseTimeout = leaseTimeout;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.deleted = Counter.builder("user.deletion").tag("outcome", "deleted").register(meterRegistry);
+        this.failed = Counter.builder("user.deletion").tag("outcome", "failed").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        this.schedule = Flux.interval(pollInterval, pollInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> drain()
+                .onErrorResume(throwable -> {
+                    log.warn("[drain] pending deletions could not be read.", throwable);
+                    return Mono.empty();
+                }))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    /**
+     * 삭제 대기 중인 사용자를 한 묶음 처리
+     *
+     * @return 삭제를 끝낸 사용자 수
+     */
+    Mono<Long> drain() {
+        Query pending = Query.query(Criteria.where("deletionRetryDatetime").lte(LocalDateTime.now()))
+            .with(Sort.by("deletionRetryDatetime"))
+            .limit(batchSize);
+        pending.fields().include("_id");
+        return mongoTemplate.find(pending, UserDocument.class)
+            .flatMap(document -> claim(document.getEmail()), concurrency)
+            .flatMap(this::delete, concurrency)
+            .filter(Boolean::booleanValue)
+            .count();
+    }
+
+    /**
+     * 다른 작업자가 가져가지 않도록 다음 시도 시각을 미루고 시도 횟수를 늘린다.
+     */
+    private Mono<UserDocument> claim(String username) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(username).and("deletionRetryDatetime").lte(now));
+        Update update = new Update()
+            .set("deletionRetryDatetime", now.plus(leaseTimeout))
+            .inc("deletionAttempts", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), UserDocument.class);
+    }
+
+    private Mono<Boolean> delete(UserDocument document) {
+        String username = document.getEmail();
+        return cloudUserManager.remove(username)
+            .then(mongoTemplate.remove(Query.query(Criteria.where("email").is(username)), AgreeReceiveDocument.class))
+            .then(mongoTemplate.remove(Query.query(Criteria.where("_id").in(Arrays.asList(username, document.getPhoneNumber()))), VerificationDocument.class))
+            .then(mongoTemplate.remove(Query.query(Criteria.where("_id").is(username)), UserDocument.class))
+            .then(Mono.fromRunnable(() -> userProfileCache.invalidate(username)))
+            .then(Mono.fromCallable(() -> {
+                deleted.increment();
+                log.info("user: {} removed.", username);
+                return Boolean.TRUE;
+            }))
+            .onErrorResume(throwable -> retryLater(document, throwable).thenReturn(Boolean.FALSE));
+    }
+
+    private Mono<Void> retryLater(UserDocument document, Throwable throwable) {
+        failed.increment();
+        int attempts = Optional.ofNullable(document.getDeletionAttempts()).orElse(1);
+        Duration backoff = backoff(attempts);
+        log.warn("[delete] username: {}, attempts: {} failed, retry after {}", document.getEmail(), attempts, backoff, throwable);
+        return mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(document.getEmail())),
+            new Update().set("deletionRetryDatetime", LocalDateTime.now().plus(backoff)),
+            UserDocument.class).then();
+    }
+
+    Duration backoff(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration backoff = initialBackoff.multipliedBy(1L << exponent);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+}
@@ -5,12 +5,22 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 
 @Document("user")
+@CompoundIndexes({
+    // /users/find (findByNameAndPhoneNumber)
+    @CompoundIndex(name = "name_phoneNumber", def = "{'name': 1, 'phoneNumber': 1}", background = true),
+    // 사용자 목록 (createdDatetime 내림차순 정렬)
+    @CompoundIndex(name = "createdDatetime_email", def = "{'createdDatetime': -1, '_id': -1}", background = true)
+})
 @Setter
 @Getter
 @NoArgsConstructor
@@ -32,4 +42,35 @@ class UserDocument {
     private LocalDateTime updatedDatetime;
 
     private String updater;
+
+    /**
+     * 수정할 때마다 1씩 증가하는 낙관적 잠금 버전, 버전이 도입되기 전에 저장된 문서는 null
+     */
+    private Long version;
+
+    /**
+     * 탈퇴 요청 시각, 값이 있으면 삭제 대기 중인 사용자
+     */
+    private LocalDateTime deletionRequestedDatetime;
+
+    /**
+     * 다음 삭제 시도 시각
+     */
+    @Indexed(name = "deletionRetryDatetime", sparse = true, background = true)
+    private LocalDateTime deletionRetryDatetime;
+
+    /**
+     * 삭제 시도 횟수
+     */
+    private Integer deletionAttempts;
+
+    /**
+     * 검색용 n-gram 토큰 (UserSearchTokens), email, name, phoneNumber 를 쓸 때 함께 갱신한다.
+     */
+    @Indexed(name = "searchTokens", background = true)
+    private List<String> searchTokens;
+
+    void updateSearchTokens() {
+        this.searchTokens = UserSearchTokens.of(email, name, phoneNumber);
+    }
 }
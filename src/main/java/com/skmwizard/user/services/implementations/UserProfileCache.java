@@ -0,0 +1,96 @@
+package com.skmwizard.user.services.implementations;
+
+import com.skmwizard.user.messages.MessageSubscriber;
+import com.skmwizard.user.messages.PublishableEvent;
+import com.skmwizard.user.services.User;
+import com.skmwizard.user.support.SingleFlightCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 사용자 프로필 캐시 (UserService.get(username))
+ * <pre>
+ * - maximumSize 개까지 조회가 끝난 뒤 ttl 동안 보관한다. 같은 사용자의 동시 조회는 DB 를 한 번만 읽고, 실패한 조회는 보관하지 않는다.
+ *   조회 중에 지워진 항목은 그 조회 결과로 다시 채우지 않는다.
+ * - 수정과 탈퇴 요청은 evict 로 이 인스턴스의 항목을 바로 지운다.
+ *   다른 인스턴스는 UserChangeStreamPublisher 가 발행한 USER_UPDATED, USER_DELETED 를 구독하여 같은 항목을 지운다.
+ *   구독이 끊기면 retryBackoff 부터 최대 1분 간격으로 다시 구독한다. 메시지를 놓치더라도 ttl 이 지나면 다시 읽는다.
+ * - 적중률과 제거 수는 cache.* {cache=user.profile}, DB 조회 시간은 user.profile.cache.load 로 집계한다.
+ * </pre>
+ */
+@Component
+@Slf4j
+class UserProfileCache {
+    private final SingleFlightCache<String, User> profiles;
+    private final MessageSubscriber messageSubscriber;
+    private final Timer loadTimer;
+    private final Duration retryBackoff;
+    private Disposable subscription;
+
+    UserProfileCache(MessageSubscriber messageSubscriber,
+                     MeterRegistry meterRegistry,
+                     @Value("${user.profile.cache.ttl:5m}") Duration ttl,
+                     @Value("${user.profile.cache.maximumSize:10000}") long maximumSize,
+                     @Value("${user.profile.cache.retryBackoff:1s}") Duration retryBackoff) {
+        this.messageSubscriber = messageSubscriber;
+        this.retryBackoff = retryBackoff;
+        this.profiles = new SingleFlightCache<>(ttl, maximumSize, meterRegistry, "user.profile");
+        this.loadTimer = Timer.builder("user.profile.cache.load")
+            .description("The time taken to load a user profile on a cache miss")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        this.subscription = Flux.merge(
+            messageSubscriber.subscribe(PublishableEvent.USER_UPDATED),
+            messageSubscriber.subscribe(PublishableEvent.USER_DELETED))
+            .filter(message -> message.getMessageId() != null)
+            .doOnNext(message -> invalidate(message.getMessageId()))
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, retryBackoff)
+                .maxBackoff(Duration.ofMinutes(1))
+                .doBeforeRetry(signal -> log.warn("[subscribe] user profile invalidation failed, resubscribing.", signal.failure())))
+            .subscribe(
+                message -> log.debug("[subscribe] {} invalidated by {}", message.getMessageId(), message.getEvent()),
+                throwable -> log.error("[subscribe] user profile invalidation stopped, entries now expire by ttl only.", throwable));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    Mono<User> get(String username, Function<String, Mono<User>> loader) {
+        return profiles.get(username, key -> {
+            Timer.Sample sample = Timer.start();
+            return loader.apply(key)
+                .doFinally(signal -> sample.stop(loadTimer));
+        });
+    }
+
+    void invalidate(String username) {
+        profiles.invalidate(username);
+    }
+
+    /**
+     * 이 인스턴스의 항목을 지운다. 다른 인스턴스는 변경 스트림 이벤트로 지운다.
+     */
+    Mono<Void> evict(String username) {
+        return Mono.fromRunnable(() -> invalidate(username));
+    }
+}
@@ -0,0 +1,65 @@
+package com.skmwizard.user.services.implementations;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 사용자 검색용 n-gram 토큰
+ * <pre>
+ * email, name, phoneNumber 를 소문자로 바꾼 뒤
+ * - 모든 위치의 2-gram (부분 문자열 검색, 두 글자 한글 이름 포함)
+ * - 첫 글자 앞에 '^' 를 붙인 1-gram (한 글자 접두어 검색)
+ * 을 만든다. searchTokens 의 multikey 인덱스로 후보를 좁힌 뒤 원래 값으로 부분 문자열 일치를 확인한다.
+ * </pre>
+ */
+final class UserSearchTokens {
+    static final int GRAM = 2;
+    private static final String PREFIX = "^";
+
+    private UserSearchTokens() {
+    }
+
+    /**
+     * 저장할 토큰
+     */
+    static List<String> of(String... values) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String value : values) {
+            String normalized = normalize(value);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            tokens.add(PREFIX + normalized.substring(0, 1));
+            tokens.addAll(grams(normalized));
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * 검색어의 토큰, 모두 포함한 사용자가 후보가 된다.
+     */
+    static List<String> query(String query) {
+        String normalized = normalize(query);
+        if (normalized.length() < GRAM) {
+            List<String> prefix = new ArrayList<>();
+            prefix.add(PREFIX + normalized);
+            return prefix;
+        }
+        return new ArrayList<>(grams(normalized));
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int index = 0; index + GRAM <= value.length(); index++) {
+            grams.add(value.substring(index, index + GRAM));
+        }
+        return grams;
+    }
+}
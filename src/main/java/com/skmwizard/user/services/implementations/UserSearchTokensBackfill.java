@@ -0,0 +1,50 @@
+package com.skmwizard.user.services.implementations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * searchTokens 가 없는 기존 사용자 문서에 검색 토큰 채우기
+ * <pre>기동이 끝난 뒤 백그라운드에서 한 번 실행한다. 새로 쓰는 문서는 쓰는 시점에 토큰을 만든다.</pre>
+ */
+@Component
+@Slf4j
+class UserSearchTokensBackfill {
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int concurrency;
+
+    UserSearchTokensBackfill(
+        ReactiveMongoTemplate mongoTemplate,
+        @Value("${user.search.backfill.enabled:true}") boolean enabled,
+        @Value("${user.search.backfill.concurrency:8}") int concurrency) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.concurrency = concurrency;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        Query missing = Query.query(Criteria.where("searchTokens").exists(false));
+        missing.fields().include("_id").include("name").include("phoneNumber");
+        mongoTemplate.find(missing, UserDocument.class)
+            .flatMap(document -> mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(document.getEmail())),
+                new Update().set("searchTokens", UserSearchTokens.of(document.getEmail(), document.getName(), document.getPhoneNumber())),
+                UserDocument.class), concurrency)
+            .count()
+            .subscribe(
+                count -> log.info("[backfill] searchTokens filled: {}", count),
+                throwable -> log.error("[backfill] searchTokens backfill failed.", throwable));
+    }
+}
@@ -0,0 +1,78 @@
+package com.skmwizard.user.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 같은 키의 동시 호출을 하나로 묶고, 완료된 결과를 retention 동안 보관하는 캐시
+ * <pre>
+ * - 진행 중인 호출은 만료시키지 않는다. 호출이 끝나면 결과로 교체하고, 그때부터 retention 이 지나면 만료된다.
+ * - 실패한 호출은 바로 제거한다. 그 사이 invalidate 후 새 호출로 바뀌었으면 새 호출은 그대로 둔다.
+ * - maximumSize 를 넘으면 진행 중인 호출도 제거될 수 있으며, 그때는 같은 키로 호출이 한 번 더 나갈 뿐이다.
+ * - 적중률, 제거 수는 cache.* {cache=name} 으로 집계한다.
+ * </pre>
+ */
+public final class SingleFlightCache<K, V> {
+    private final Cache<K, Mono<V>> calls;
+
+    public SingleFlightCache(Duration retention, long maximumSize, MeterRegistry meterRegistry, String name) {
+        this.calls = Caffeine.newBuilder()
+            .expireAfter(new CallExpiry<K, V>(retention))
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.calls, name);
+    }
+
+    /**
+     * @param loader 보관된 결과나 진행 중인 호출이 없을 때 실행할 호출
+     */
+    public Mono<V> get(K key, Function<? super K, Mono<V>> loader) {
+        return calls.get(key, k -> {
+            AtomicReference<Mono<V>> call = new AtomicReference<>();
+            call.set(Mono.defer(() -> loader.apply(k))
+                .doOnSuccess(value -> calls.asMap().replace(k, call.get(), value == null ? Mono.empty() : Mono.just(value)))
+                .doOnError(throwable -> calls.asMap().remove(k, call.get()))
+                .cache());
+            return call.get();
+        });
+    }
+
+    public void invalidate(K key) {
+        calls.invalidate(key);
+    }
+
+    /**
+     * 생성(진행 중인 호출)은 만료하지 않고, 결과로 교체된 뒤부터 retention 을 적용한다.
+     */
+    private static final class CallExpiry<K, V> implements Expiry<K, Mono<V>> {
+        private final long retentionNanos;
+
+        private CallExpiry(Duration retention) {
+            this.retentionNanos = retention.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(K key, Mono<V> value, long currentTime) {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, Mono<V> value, long currentTime, long currentDuration) {
+            return retentionNanos;
+        }
+
+        @Override
+        public long expireAfterRead(K key, Mono<V> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
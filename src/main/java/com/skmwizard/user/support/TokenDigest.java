@@ -0,0 +1,27 @@
+package com.skmwizard.user.support;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * 토큰 원문을 캐시 키로 보관하지 않도록 SHA-256 해시로 변환
+ */
+public final class TokenDigest {
+    private TokenDigest() {
+    }
+
+    /**
+     * @param token 토큰 원문
+     * @return Base64 로 인코딩된 해시
+     */
+    public static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
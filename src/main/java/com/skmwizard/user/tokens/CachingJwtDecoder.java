@@ -0,0 +1,87 @@
+package com.skmwizard.user.tokens;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.skmwizard.user.support.TokenDigest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 서명 검증이 끝난 Jwt 를 토큰 해시 기준으로 보관하는 ReactiveJwtDecoder
+ * <pre>
+ * 같은 토큰이 만료될 때까지 반복해서 들어오므로, 한 번 검증한 결과를 재사용하여 서명 검증을 생략한다.
+ * 각 항목은 maximumTtl 과 토큰의 exp 중 빠른 시점에 만료된다.
+ * </pre>
+ */
+class CachingJwtDecoder implements ReactiveJwtDecoder {
+    private final ReactiveJwtDecoder delegate;
+    private final Cache<String, Jwt> verified;
+
+    CachingJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry meterRegistry, long maximumSize, Duration maximumTtl) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(new TokenExpiry(maximumTtl))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.verified, "jwt");
+        Gauge.builder("cache.hit.ratio", this.verified, cache -> cache.stats().hitRate())
+            .tag("cache", "jwt")
+            .description("The ratio of cache requests which were hits")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        String key = TokenDigest.digest(token);
+        Jwt jwt = verified.getIfPresent(key);
+        if (jwt != null) {
+            return Mono.just(jwt);
+        }
+        return delegate.decode(token)
+            .doOnNext(decoded -> verified.put(key, decoded));
+    }
+
+    /**
+     * 토큰의 exp 를 넘지 않는 항목별 만료 시간
+     */
+    private static class TokenExpiry implements Expiry<String, Jwt> {
+        private final Duration maximumTtl;
+
+        TokenExpiry(Duration maximumTtl) {
+            this.maximumTtl = maximumTtl;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) {
+                return maximumTtl.toNanos();
+            }
+            Duration remaining = Duration.between(Instant.now(), expiresAt);
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            return Math.min(remaining.toNanos(), maximumTtl.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.skmwizard.user.tokens;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JWK Set 을 kid 기준으로 보관하는 캐시
+ * <pre>
+ * - 기동 시 미리 채우고, refreshInterval 주기로 백그라운드 갱신한다.
+ * - 모르는 kid 를 만나면 cooldown 이 지난 경우에 한해 한 번 갱신한다.
+ * - 갱신에 실패하면 기존 키를 그대로 사용한다.
+ * - jwk-set-uri 가 http(s) 가 아니면 (file:, classpath:) 로컬 리소스에서 읽는다.
+ * </pre>
+ */
+@Component
+@Slf4j
+class JwkSetCache {
+    private final String jwkSetUri;
+    private final WebClient webClient;
+    private final ResourceLoader resourceLoader;
+    private final Duration refreshInterval;
+    private final Duration cooldown;
+    private final Duration timeout;
+    private final AtomicReference<Mono<Map<String, JWK>>> refreshing = new AtomicReference<>();
+    private volatile Map<String, JWK> keys = Collections.emptyMap();
+    private volatile Instant refreshedAt = Instant.EPOCH;
+    private Disposable schedule;
+
+    JwkSetCache(
+        WebClient.Builder webClientBuilder,
+        @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+        @Value("${jwks.refreshInterval:15m}") Duration refreshInterval,
+        @Value("${jwks.cooldown:30s}") Duration cooldown,
+        @Value("${jwks.timeout:5s}") Duration timeout) {
+        this.jwkSetUri = jwkSetUri;
+        this.webClient = webClientBuilder.build();
+        this.resourceLoader = new DefaultResourceLoader();
+        this.refreshInterval = refreshInterval;
+        this.cooldown = cooldown;
+        this.timeout = timeout;
+    }
+
+    @PostConstruct
+    public void start() {
+        refresh().block();
+        this.schedule = Flux.interval(refreshInterval, refreshInterval)
+            .concatMap(tick -> refresh())
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    /**
+     * 서명 검증에 사용할 JWK 조회
+     *
+     * @param jwt 서명된 JWT
+     * @return kid 에 해당하는 JWK, kid 가 없으면 전체 JWK
+     */
+    Flux<JWK> get(SignedJWT jwt) {
+        String kid = jwt.getHeader().getKeyID();
+        if (kid == null) {
+            return Flux.fromIterable(keys.values());
+        }
+        JWK jwk = keys.get(kid);
+        if (jwk != null) {
+            return Flux.just(jwk);
+        }
+        if (refreshedAt.plus(cooldown).isAfter(Instant.now())) {
+            log.debug("[get] unknown kid: {}, refresh skipped in cooldown", kid);
+            return Flux.empty();
+        }
+        log.info("[get] unknown kid: {}, refresh JWK Set", kid);
+        return refresh().flatMapMany(refreshed -> Mono.justOrEmpty(refreshed.get(kid)));
+    }
+
+    /**
+     * JWK Set 갱신, 진행 중인 갱신이 있으면 그 결과를 공유한다.
+     *
+     * @return 갱신된 kid 색인, 실패하면 기존 kid 색인
+     */
+    Mono<Map<String, JWK>> refresh() {
+        Mono<Map<String, JWK>> current = refreshing.get();
+        if (current != null) {
+            return current;
+        }
+        Mono<Map<String, JWK>> created = fetch()
+            .timeout(timeout)
+            .map(JwkSetCache::index)
+            .doOnNext(indexed -> {
+                this.keys = indexed;
+                log.info("[refresh] JWK Set refreshed, kid: {}", indexed.keySet());
+            })
+            .onErrorResume(throwable -> {
+                log.warn("[refresh] JWK Set refresh failed, serving {} cached keys: {}", keys.size(), throwable.getMessage());
+                return Mono.just(keys);
+            })
+            .doFinally(signalType -> refreshing.set(null))
+            .cache();
+        if (!refreshing.compareAndSet(null, created)) {
+            return refresh();
+        }
+        this.refreshedAt = Instant.now();
+        return created;
+    }
+
+    private Mono<String> fetch() {
+        if (jwkSetUri.startsWith("http")) {
+            return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class);
+        }
+        return Mono.fromCallable(() -> {
+            try (InputStream inputStream = resourceLoader.getResource(jwkSetUri).getInputStream()) {
+                return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Map<String, JWK> index(String jwkSet) {
+        try {
+            Map<String, JWK> indexed = new HashMap<>();
+            for (JWK jwk : JWKSet.parse(jwkSet).getKeys()) {
+                indexed.put(jwk.getKeyID(), jwk);
+            }
+            return Collections.unmodifiableMap(indexed);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid JWK Set: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.skmwizard.user.tokens;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import java.time.Duration;
+
+/**
+ * Resource Server 의 JWT 검증 설정
+ * <pre>
+ * jwt(withDefaults()) 는 이 ReactiveJwtDecoder 를 사용한다.
+ * 폐기 목록 검사 -> 검증 결과 캐시 -> 서명 검증 순서로 감싼다.
+ * </pre>
+ */
+@Configuration
+class JwtDecoderConfiguration {
+    @Bean
+    public ReactiveJwtDecoder reactiveJwtDecoder(
+        JwkSetCache jwkSetCache,
+        TokenRevocationList revocationList,
+        MeterRegistry meterRegistry,
+        @Value("${jwt.cache.maximumSize:100000}") long maximumSize,
+        @Value("${jwt.cache.maximumTtl:1h}") Duration maximumTtl) {
+        ReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(jwkSetCache::get).build();
+        Gauge.builder("jwt.revocations", revocationList, TokenRevocationList::size).register(meterRegistry);
+        return new RevocationCheckingJwtDecoder(new CachingJwtDecoder(decoder, meterRegistry, maximumSize, maximumTtl), revocationList);
+    }
+}
@@ -0,0 +1,29 @@
+package com.skmwizard.user.tokens;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+/**
+ * 로그아웃으로 폐기된 토큰을 거부하는 ReactiveJwtDecoder
+ * <pre>캐시된 Jwt 에도 적용되도록 CachingJwtDecoder 바깥에서 검사한다.</pre>
+ */
+class RevocationCheckingJwtDecoder implements ReactiveJwtDecoder {
+    private final ReactiveJwtDecoder delegate;
+    private final TokenRevocationList revocationList;
+
+    RevocationCheckingJwtDecoder(ReactiveJwtDecoder delegate, TokenRevocationList revocationList) {
+        this.delegate = delegate;
+        this.revocationList = revocationList;
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        return delegate.decode(token)
+            .flatMap(jwt -> revocationList.isRevoked(jwt.getClaimAsString("cognito:username"), jwt.getIssuedAt())
+                ? Mono.error(new BadJwtException("Token has been revoked"))
+                : Mono.just(jwt));
+    }
+}
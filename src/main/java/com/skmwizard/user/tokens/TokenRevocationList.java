@@ -0,0 +1,152 @@
+package com.skmwizard.user.tokens;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 로그아웃한 사용자의 토큰 폐기 목록
+ * <pre>
+ * - 사용자 아이디별로 폐기 시각을 보관하고, 그 시각 이전에 발급된(iat) 토큰은 폐기된 것으로 본다.
+ * - 토큰 최대 수명(maximumTokenLifetime)이 지난 항목은 더 이상 유효한 토큰이 없으므로 지운다.
+ * - 변경 사항은 flushInterval 주기로 파일에 저장하고, 기동 시 다시 읽는다.
+ * </pre>
+ */
+@Component
+@Slf4j
+public class TokenRevocationList {
+    private final Map<String, Instant> revocations = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Path file;
+    private final Duration maximumTokenLifetime;
+    private final Duration flushInterval;
+    private Disposable schedule;
+
+    TokenRevocationList(
+        @Value("${jwt.revocation.file:token-revocations.properties}") String file,
+        @Value("${jwt.revocation.maximumTokenLifetime:1h}") Duration maximumTokenLifetime,
+        @Value("${jwt.revocation.flushInterval:5s}") Duration flushInterval) {
+        this.file = Paths.get(file);
+        this.maximumTokenLifetime = maximumTokenLifetime;
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        load();
+        this.schedule = Flux.interval(flushInterval, flushInterval, Schedulers.boundedElastic())
+            .doOnNext(tick -> {
+                purge();
+                flush();
+            })
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+        flush();
+    }
+
+    /**
+     * 지금까지 발급된 사용자의 토큰을 모두 폐기
+     *
+     * @param username 사용자 아이디 (cognito:username)
+     */
+    public void revoke(String username) {
+        revocations.put(username, Instant.now());
+        dirty.set(true);
+        log.info("[revoke] username: {}", username);
+    }
+
+    /**
+     * 토큰 폐기 여부
+     *
+     * @param username 사용자 아이디 (cognito:username)
+     * @param issuedAt 토큰 발급 시각 (iat)
+     */
+    public boolean isRevoked(String username, Instant issuedAt) {
+        if (username == null) {
+            return false;
+        }
+        Instant revokedAt = revocations.get(username);
+        // iat 는 초 단위이므로 폐기한 같은 초에 발급된 토큰도 폐기된 것으로 본다.
+        return revokedAt != null && (issuedAt == null || !issuedAt.isAfter(revokedAt));
+    }
+
+    int size() {
+        return revocations.size();
+    }
+
+    void purge() {
+        Instant expiredBefore = Instant.now().minus(maximumTokenLifetime);
+        if (revocations.values().removeIf(revokedAt -> revokedAt.isBefore(expiredBefore))) {
+            dirty.set(true);
+        }
+    }
+
+    void flush() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Properties properties = new Properties();
+        revocations.forEach((username, revokedAt) -> properties.setProperty(username, Long.toString(revokedAt.toEpochMilli())));
+        Path absolute = file.toAbsolutePath();
+        try {
+            if (absolute.getParent() != null) {
+                Files.createDirectories(absolute.getParent());
+            }
+            Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                properties.store(outputStream, "token revocations (username=revokedAt epoch millis)");
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            dirty.set(true);
+            log.warn("[flush] token revocations could not be written to {}", absolute, exception);
+        }
+    }
+
+    private void load() {
+        if (!Files.isReadable(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        } catch (IOException exception) {
+            log.warn("[load] token revocations could not be read from {}", file.toAbsolutePath(), exception);
+            return;
+        }
+        properties.stringPropertyNames().forEach(username -> {
+            try {
+                revocations.put(username, Instant.ofEpochMilli(Long.parseLong(properties.getProperty(username))));
+            } catch (NumberFormatException exception) {
+                log.warn("[load] invalid revocation for username: {}", username);
+            }
+        });
+        purge();
+        log.info("[load] {} token revocations loaded.", revocations.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.skmwizard.user.clouds;
+
+import com.skmwizard.user.services.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.NotAuthorizedException;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class GuardedCloudUserManagerTests {
+    private CloudUserManager delegate;
+    private GuardedCloudUserManager cloudUserManager;
+
+    @BeforeEach
+    public void setUp() {
+        this.delegate = mock(CloudUserManager.class);
+        this.cloudUserManager = new GuardedCloudUserManager(
+            delegate,
+            CloudUserManagerConfiguration::isBackendFailure,
+            operation -> new AdaptiveConcurrencyLimiter(1, 1, 10, 0.9, Duration.ofSeconds(1).toNanos()),
+            operation -> new CircuitBreaker(2, Duration.ofMinutes(1)),
+            new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void rejectWhenConcurrencyLimitExceeded() {
+        when(delegate.logout(any())).thenReturn(Mono.never());
+
+        cloudUserManager.logout("user_id@gmail.com").subscribe();
+
+        StepVerifier.create(cloudUserManager.logout("user_id@gmail.com"))
+            .expectError(CloudUnavailableException.class)
+            .verify();
+        verify(delegate, times(1)).logout(any());
+    }
+
+    @Test
+    public void openCircuitAfterBackendFailures() {
+        when(delegate.remove(any())).thenReturn(Mono.error(SdkClientException.create("connection refused")));
+
+        StepVerifier.create(cloudUserManager.remove("user_id@gmail.com")).expectError(SdkClientException.class).verify();
+        StepVerifier.create(cloudUserManager.remove("user_id@gmail.com")).expectError(SdkClientException.class).verify();
+        StepVerifier.create(cloudUserManager.remove("user_id@gmail.com")).expectError(CloudUnavailableException.class).verify();
+
+        verify(delegate, times(2)).remove(any());
+    }
+
+    @Test
+    public void keepCircuitClosedOnRequestErrors() {
+        when(delegate.login(any())).thenReturn(Mono.error(NotAuthorizedException.builder().message("Incorrect username or password.").build()));
+        User user = User.builder().email("user_id@gmail.com").password("password").build();
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(cloudUserManager.login(user)).expectError(NotAuthorizedException.class).verify();
+        }
+
+        verify(delegate, times(3)).login(any());
+    }
+
+    @Test
+    public void releasePermitWhenCallThrows() {
+        when(delegate.logout(any()))
+            .thenThrow(SdkClientException.create("request could not be built"))
+            .thenReturn(Mono.just(Boolean.TRUE));
+
+        StepVerifier.create(cloudUserManager.logout("user_id@gmail.com")).expectError(SdkClientException.class).verify();
+        StepVerifier.create(cloudUserManager.logout("user_id@gmail.com")).expectNext(Boolean.TRUE).verifyComplete();
+
+        verify(delegate, times(2)).logout(any());
+    }
+}
@@ -0,0 +1,84 @@
+package com.skmwizard.user.services.implementations;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.skmwizard.user.services.AgreeReceive;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class DefaultAgreeReceiveServiceTests {
+    private static final String EMAIL = "user@skmwizard.com";
+    private static final List<AgreeReceive> REQUESTS = Arrays.asList(
+        AgreeReceive.builder().code("A01").build(),
+        AgreeReceive.builder().code("A02").build(),
+        AgreeReceive.builder().code("A03").build());
+
+    private ReactiveMongoTemplate mongoTemplate;
+    private DefaultAgreeReceiveService service;
+
+    @BeforeEach
+    public void setUp() {
+        mongoTemplate = mock(ReactiveMongoTemplate.class);
+        service = new DefaultAgreeReceiveService(mock(AgreeReceiveRepository.class), new AgreeReceiveConverter(), mongoTemplate, mongoTemplate);
+        doReturn(Flux.empty()).when(mongoTemplate).find(any(Query.class), eq(AgreeReceiveDocument.class));
+    }
+
+    @Test
+    public void rejectsCodesAlreadyAgreed() {
+        AgreeReceiveDocument existing = new AgreeReceiveDocument();
+        existing.setCode("A02");
+        doReturn(Flux.just(existing)).when(mongoTemplate).find(any(Query.class), eq(AgreeReceiveDocument.class));
+
+        StepVerifier.create(service.addAll(EMAIL, REQUESTS))
+            .expectErrorSatisfies(throwable -> assertThat(throwable).isInstanceOf(DuplicateKeyException.class).hasMessage("A02"))
+            .verify();
+        verify(mongoTemplate, never()).insertAll(anyCollection());
+    }
+
+    @Test
+    public void rollsBackDocumentsInsertedBeforeConcurrentDuplicate() {
+        // A01 은 들어가고, 그 사이 다른 요청이 먼저 등록한 A02 에서 멈춘 경우
+        MongoBulkWriteException bulkWriteException = new MongoBulkWriteException(
+            BulkWriteResult.acknowledged(1, 0, 0, 0, Collections.emptyList(), Collections.emptyList()),
+            Collections.singletonList(new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1)),
+            null,
+            new ServerAddress());
+        doReturn(Flux.error(new DuplicateKeyException(bulkWriteException.getMessage(), bulkWriteException)))
+            .when(mongoTemplate).insertAll(anyCollection());
+        doReturn(Mono.just(DeleteResult.acknowledged(1))).when(mongoTemplate).remove(any(Query.class), eq(AgreeReceiveDocument.class));
+
+        StepVerifier.create(service.addAll(EMAIL, REQUESTS))
+            .expectErrorSatisfies(throwable -> assertThat(throwable).isInstanceOf(DuplicateKeyException.class).hasMessage("A02"))
+            .verify();
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(AgreeReceiveDocument.class));
+        assertThat(removed.getValue().getQueryObject().getString("email")).isEqualTo(EMAIL);
+        assertThat(removed.getValue().getQueryObject().get("code", org.bson.Document.class).getList("$in", String.class))
+            .containsExactly("A01");
+    }
+}
@@ -0,0 +1,59 @@
+package com.skmwizard.user.services.implementations;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashedTimingWheelTests {
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    public void expiresKeysOnlyAfterTheirDeadline() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(1000, 8, 0, expired::add);
+        wheel.schedule("a", 2500);
+        wheel.schedule("b", 4000);
+
+        assertThat(wheel.advance(2000)).isZero();
+        assertThat(wheel.advance(3000)).isEqualTo(1);
+        assertThat(expired).containsExactly("a");
+        assertThat(wheel.advance(4000)).isEqualTo(1);
+        assertThat(expired).containsExactly("a", "b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void keepsKeysScheduledMoreThanOneRevolutionAhead() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(1000, 8, 0, expired::add);
+        // 8 tick 한 바퀴 뒤의 같은 버킷
+        wheel.schedule("later", 10_000);
+
+        assertThat(wheel.advance(2000)).isZero();
+        assertThat(wheel.advance(9000)).isZero();
+        assertThat(wheel.advance(10_000)).isEqualTo(1);
+        assertThat(expired).containsExactly("later");
+    }
+
+    @Test
+    public void catchesUpAfterLongPause() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(1000, 8, 0, expired::add);
+        wheel.schedule("a", 1000);
+        wheel.schedule("b", 5000);
+        wheel.schedule("c", 100_000);
+
+        assertThat(wheel.advance(60_000)).isEqualTo(2);
+        assertThat(expired).containsExactlyInAnyOrder("a", "b");
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void expiresPastDeadlinesOnNextAdvance() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(1000, 8, 5000, expired::add);
+        wheel.schedule("past", 1000);
+
+        assertThat(wheel.advance(5000)).isEqualTo(1);
+        assertThat(expired).containsExactly("past");
+    }
+}
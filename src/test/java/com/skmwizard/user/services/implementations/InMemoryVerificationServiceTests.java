@@ -0,0 +1,92 @@
+package com.skmwizard.user.services.implementations;
+
+import com.skmwizard.user.services.Verification;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryVerificationServiceTests {
+    private static final Verification ISSUED = Verification.builder().checker("user@skmwizard.com").verificationCode("123456").build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void consumesCodeOnlyOnce() {
+        InMemoryVerificationService service = service(Duration.ofMinutes(3), "");
+        service.add(ISSUED).block();
+
+        assertThat(service.consume(Verification.builder().checker(ISSUED.getChecker()).verificationCode("000000").build()).block()).isFalse();
+        assertThat(service.consume(ISSUED).block()).isTrue();
+        assertThat(service.consume(ISSUED).block()).isFalse();
+        assertThat(service.size()).isZero();
+    }
+
+    @Test
+    public void concurrentConsumesOfSameCodeSucceedOnce() throws Exception {
+        InMemoryVerificationService service = service(Duration.ofMinutes(3), "");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 100; round++) {
+                service.add(ISSUED).block();
+                CountDownLatch start = new CountDownLatch(1);
+                Callable<Boolean> consume = () -> {
+                    start.await();
+                    return service.consume(ISSUED).block();
+                };
+                Future<Boolean> first = executor.submit(consume);
+                Future<Boolean> second = executor.submit(consume);
+                start.countDown();
+
+                assertThat(List.of(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS)))
+                    .containsExactlyInAnyOrder(true, false);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rejectsExpiredCode() {
+        InMemoryVerificationService service = service(Duration.ZERO, "");
+        service.add(ISSUED).block();
+
+        assertThat(service.consume(ISSUED).block()).isFalse();
+    }
+
+    @Test
+    public void restoresCodesFromSnapshot() {
+        Path snapshotFile = directory.resolve("verification.properties");
+        InMemoryVerificationService saved = service(Duration.ofMinutes(3), snapshotFile.toString());
+        saved.start();
+        saved.add(ISSUED).block();
+        saved.stop();
+        assertThat(Files.exists(snapshotFile)).isTrue();
+
+        InMemoryVerificationService loaded = service(Duration.ofMinutes(3), snapshotFile.toString());
+        loaded.start();
+        try {
+            assertThat(loaded.size()).isEqualTo(1);
+            assertThat(loaded.consume(ISSUED).block()).isTrue();
+        } finally {
+            loaded.stop();
+        }
+    }
+
+    private static InMemoryVerificationService service(Duration lifetime, String snapshotFile) {
+        return new InMemoryVerificationService(new SimpleMeterRegistry(), lifetime, 4, Duration.ofSeconds(1), 8, snapshotFile, Duration.ofMinutes(1));
+    }
+}
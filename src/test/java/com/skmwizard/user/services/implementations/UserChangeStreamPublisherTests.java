@@ -0,0 +1,109 @@
+package com.skmwizard.user.services.implementations;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.skmwizard.user.messages.MessagePublisher;
+import com.skmwizard.user.messages.PublishableEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserChangeStreamPublisherTests {
+    private MessagePublisher messagePublisher;
+    private MeterRegistry meterRegistry;
+    private UserChangeStreamPublisher publisher;
+
+    @BeforeEach
+    public void setUp() {
+        messagePublisher = mock(MessagePublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new UserChangeStreamPublisher(mock(ReactiveMongoTemplate.class), messagePublisher, new UserConverter(), meterRegistry,
+            true, Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void keepsResumeTokenOfLastDeliveredEventWhenPublishFails() {
+        when(messagePublisher.publish(eq(PublishableEvent.USER_DELETED), eq("first@skmwizard.com"), anyString()))
+            .thenReturn(Mono.empty());
+        when(messagePublisher.publish(eq(PublishableEvent.USER_DELETED), eq("second@skmwizard.com"), anyString()))
+            .thenReturn(Mono.error(new IllegalStateException("not connected")));
+
+        StepVerifier.create(publisher.publishAll(Flux.just(deleted("first@skmwizard.com", "1"), deleted("second@skmwizard.com", "2"))))
+            .expectNext(token("1"))
+            .expectError(IllegalStateException.class)
+            .verify();
+
+        assertThat(publisher.resumeToken()).isEqualTo(token("1"));
+        assertThat(meterRegistry.counter("user.events.published", "event", PublishableEvent.USER_DELETED.name()).count()).isEqualTo(1);
+    }
+
+    @Test
+    public void doesNotAdvanceBeforeDeliveryIsConfirmed() {
+        when(messagePublisher.publish(eq(PublishableEvent.USER_DELETED), eq("first@skmwizard.com"), anyString()))
+            .thenReturn(Mono.never());
+
+        StepVerifier.create(publisher.publishAll(Flux.just(deleted("first@skmwizard.com", "1"))))
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(100))
+            .thenCancel()
+            .verify();
+
+        assertThat(publisher.resumeToken()).isNull();
+    }
+
+    @Test
+    public void publishesCreatedDatetimeAsIsoString() {
+        UserDocument document = new UserDocument();
+        document.setEmail("first@skmwizard.com");
+        document.setName("홍길동");
+        document.setCreatedDatetime(LocalDateTime.of(2020, 7, 28, 10, 15, 30));
+        MongoConverter converter = mock(MongoConverter.class);
+        when(converter.read(eq(UserDocument.class), any(Document.class))).thenReturn(document);
+        ChangeStreamDocument<Document> raw = new ChangeStreamDocument<>(OperationType.INSERT, token("1"), null, null, new Document("_id", "first@skmwizard.com"),
+            new BsonDocument("_id", new BsonString("first@skmwizard.com")), null, null, null, null);
+        when(messagePublisher.publish(eq(PublishableEvent.USER_CREATED), isNull(), anyString())).thenReturn(Mono.empty());
+
+        StepVerifier.create(publisher.publishAll(Flux.just(new ChangeStreamEvent<>(raw, UserDocument.class, converter))))
+            .expectNext(token("1"))
+            .verifyComplete();
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(messagePublisher).publish(eq(PublishableEvent.USER_CREATED), isNull(), payload.capture());
+        assertThat(payload.getValue())
+            .contains("\"email\":\"first@skmwizard.com\"")
+            .contains("\"createdDatetime\":\"2020-07-28T10:15:30\"");
+    }
+
+    private static ChangeStreamEvent<UserDocument> deleted(String username, String token) {
+        ChangeStreamDocument<Document> raw = new ChangeStreamDocument<>(OperationType.DELETE, token(token), null, null, null,
+            new BsonDocument("_id", new BsonString(username)), null, null, null, null);
+        return new ChangeStreamEvent<>(raw, UserDocument.class, mock(MongoConverter.class));
+    }
+
+    private static BsonDocument token(String data) {
+        return new BsonDocument("_data", new BsonString(data));
+    }
+}
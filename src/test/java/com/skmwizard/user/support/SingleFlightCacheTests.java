@@ -0,0 +1,53 @@
+package com.skmwizard.user.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightCacheTests {
+    private final SingleFlightCache<String, String> cache = new SingleFlightCache<>(Duration.ofMillis(50), 100, new SimpleMeterRegistry(), "test");
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void sharesCallInFlightEvenPastRetention() throws InterruptedException {
+        MonoProcessor<String> response = MonoProcessor.create();
+        Mono<String> first = cache.get("key", key -> response.doOnSubscribe(subscription -> calls.incrementAndGet()));
+        first.subscribe();
+        Thread.sleep(100);
+
+        Mono<String> second = cache.get("key", key -> Mono.just("other"));
+        response.onNext("value");
+
+        assertThat(second.block()).isEqualTo("value");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void dropsFailedCallWithoutRemovingNewerOne() {
+        MonoProcessor<String> failing = MonoProcessor.create();
+        Mono<String> failed = cache.get("key", key -> failing);
+        failed.subscribe(value -> { }, throwable -> { });
+        cache.invalidate("key");
+        Mono<String> newer = cache.get("key", key -> Mono.just("newer"));
+
+        failing.onError(new IllegalStateException("failed"));
+
+        assertThat(cache.get("key", key -> Mono.just("reloaded")).block()).isEqualTo("newer");
+        assertThat(newer.block()).isEqualTo("newer");
+    }
+
+    @Test
+    public void reloadsAfterFailure() {
+        assertThatThrownBy(() -> cache.get("key", key -> Mono.<String>error(new IllegalStateException("failed"))).block())
+            .isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get("key", key -> Mono.just("value")).block()).isEqualTo("value");
+    }
+}
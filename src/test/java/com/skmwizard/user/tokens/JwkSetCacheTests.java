@@ -0,0 +1,103 @@
+package com.skmwizard.user.tokens;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JwkSetCacheTests {
+    @TempDir
+    Path directory;
+
+    private Path jwkSetFile;
+
+    @BeforeEach
+    public void setUp() {
+        this.jwkSetFile = directory.resolve("jwks.json");
+    }
+
+    @Test
+    public void decodeWithLocalJwkSet() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("first").generate();
+        write(key);
+        JwkSetCache cache = new JwkSetCache(WebClient.builder(), jwkSetFile.toUri().toString(),
+            Duration.ofHours(1), Duration.ZERO, Duration.ofSeconds(5));
+        cache.start();
+        ReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(cache::get).build();
+
+        Jwt jwt = decoder.decode(sign(key, "user_id@gmail.com")).block();
+
+        assertThat(jwt).isNotNull();
+        assertThat(jwt.getClaimAsString("email")).isEqualTo("user_id@gmail.com");
+        cache.stop();
+    }
+
+    @Test
+    public void refreshOnUnknownKid() throws Exception {
+        RSAKey first = new RSAKeyGenerator(2048).keyID("first").generate();
+        write(first);
+        JwkSetCache cache = new JwkSetCache(WebClient.builder(), jwkSetFile.toUri().toString(),
+            Duration.ofHours(1), Duration.ZERO, Duration.ofSeconds(5));
+        cache.start();
+        ReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(cache::get).build();
+
+        RSAKey rotated = new RSAKeyGenerator(2048).keyID("rotated").generate();
+        write(first, rotated);
+
+        assertThat(decoder.decode(sign(rotated, "user_id@gmail.com")).block()).isNotNull();
+        cache.stop();
+    }
+
+    @Test
+    public void serveStaleKeysWhenRefreshFails() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("first").generate();
+        write(key);
+        JwkSetCache cache = new JwkSetCache(WebClient.builder(), jwkSetFile.toUri().toString(),
+            Duration.ofHours(1), Duration.ZERO, Duration.ofSeconds(5));
+        cache.start();
+        ReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(cache::get).build();
+
+        Files.delete(jwkSetFile);
+
+        assertThat(cache.refresh().block()).containsKey("first");
+        assertThat(decoder.decode(sign(key, "user_id@gmail.com")).block()).isNotNull();
+        cache.stop();
+    }
+
+    private void write(RSAKey... keys) throws Exception {
+        JWKSet jwkSet = new JWKSet(Arrays.asList(keys));
+        Files.write(jwkSetFile, jwkSet.toPublicJWKSet().toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sign(RSAKey key, String email) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+            .claim("email", email)
+            .issueTime(Date.from(Instant.now()))
+            .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+            .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,96 @@
+package com.skmwizard.user.tokens;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenRevocationListTests {
+    private static final String USERNAME = "user_id@gmail.com";
+
+    @TempDir
+    Path directory;
+
+    private Path revocationFile;
+
+    @BeforeEach
+    public void setUp() {
+        this.revocationFile = directory.resolve("token-revocations.properties");
+    }
+
+    @Test
+    public void rejectTokensIssuedUntilRevocation() {
+        TokenRevocationList revocationList = revocationList(Duration.ofHours(1));
+        Instant before = Instant.now().minusSeconds(60);
+        // iat 는 초 단위로 잘리므로, 폐기 직전에 발급된 토큰의 iat 는 폐기 시각과 같은 초이거나 그 이전이다.
+        Instant sameSecond = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        revocationList.revoke(USERNAME);
+        Instant after = Instant.now().plusSeconds(2);
+
+        assertThat(revocationList.isRevoked(USERNAME, before)).isTrue();
+        assertThat(revocationList.isRevoked(USERNAME, sameSecond)).isTrue();
+        assertThat(revocationList.isRevoked(USERNAME, null)).isTrue();
+        assertThat(revocationList.isRevoked(USERNAME, after)).isFalse();
+        assertThat(revocationList.isRevoked("other_id@gmail.com", before)).isFalse();
+        assertThat(revocationList.isRevoked(null, before)).isFalse();
+    }
+
+    @Test
+    public void purgeRevocationsOlderThanMaximumTokenLifetime() throws IOException {
+        Instant now = Instant.now();
+        Properties properties = new Properties();
+        properties.setProperty("expired_id@gmail.com", Long.toString(now.minus(Duration.ofHours(2)).toEpochMilli()));
+        properties.setProperty(USERNAME, Long.toString(now.minus(Duration.ofMinutes(10)).toEpochMilli()));
+        try (OutputStream outputStream = Files.newOutputStream(revocationFile)) {
+            properties.store(outputStream, null);
+        }
+        TokenRevocationList revocationList = revocationList(Duration.ofHours(1));
+
+        revocationList.start();
+        try {
+            assertThat(revocationList.size()).isEqualTo(1);
+            assertThat(revocationList.isRevoked("expired_id@gmail.com", now.minus(Duration.ofHours(3)))).isFalse();
+            assertThat(revocationList.isRevoked(USERNAME, now.minus(Duration.ofMinutes(20)))).isTrue();
+        } finally {
+            revocationList.stop();
+        }
+    }
+
+    @Test
+    public void restoreRevocationsAfterRestart() throws IOException {
+        TokenRevocationList revocationList = revocationList(Duration.ofHours(1));
+        revocationList.start();
+        revocationList.revoke(USERNAME);
+        revocationList.stop();
+
+        assertThat(revocationFile).exists();
+        try (Stream<Path> files = Files.list(directory)) {
+            // 임시 파일에 쓰고 옮기므로 남는 파일이 없다.
+            assertThat(files).containsExactly(revocationFile);
+        }
+
+        TokenRevocationList restarted = revocationList(Duration.ofHours(1));
+        restarted.start();
+        try {
+            assertThat(restarted.size()).isEqualTo(1);
+            assertThat(restarted.isRevoked(USERNAME, Instant.now().minusSeconds(60))).isTrue();
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    private TokenRevocationList revocationList(Duration maximumTokenLifetime) {
+        return new TokenRevocationList(revocationFile.toString(), maximumTokenLifetime, Duration.ofMinutes(1));
+    }
+}